@@ -0,0 +1,55 @@
+package com.movielist.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-shot migration from IDENTITY columns to pooled sequences. Tables created before the
+ * switch already hold ids that a freshly created sequence would hand out again, so each
+ * sequence still behind its table's maximum id is moved to just above it. Sequences are
+ * only ever advanced, never moved back, so running it again is harmless; still, enable it
+ * with {@code movielist.ids.align-sequences-on-startup=true} for the one start that
+ * migrates an environment, while no other instance is allocating ids.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SequenceAligner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceAligner.class);
+
+    private static final List<String> TABLES = List.of("users", "movies", "likes", "comments", "follows", "badges");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${movielist.ids.align-sequences-on-startup:false}")
+    private boolean enabled;
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        for (String table : TABLES) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            // The value nextval returns has never been handed out, so the sequence only
+            // needs to move when that value is not above every existing id
+            Long next = jdbcTemplate.queryForObject("SELECT nextval('" + table + "_seq')", Long.class);
+            long restartWith = (maxId != null ? maxId : 0L) + 1;
+            if (next == null || next >= restartWith) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER SEQUENCE " + table + "_seq RESTART WITH " + restartWith);
+            logger.info("Advanced sequence {}_seq from {} to {}", table, next, restartWith);
+        }
+    }
+}
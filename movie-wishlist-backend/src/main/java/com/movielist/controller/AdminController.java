@@ -0,0 +1,149 @@
+package com.movielist.controller;
+
+import com.movielist.exception.ApiException;
+import com.movielist.exception.ResourceNotFoundException;
+import com.movielist.payload.ApiResponse;
+import com.movielist.service.BadgeBackfillService;
+import com.movielist.service.GenreBackfillService;
+import com.movielist.service.MovieCounterService;
+import com.movielist.service.MovieFactStore;
+import com.movielist.service.UserStatsService;
+import com.movielist.service.WatchEventService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Autowired
+    private MovieCounterService movieCounterService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private WatchEventService watchEventService;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private GenreBackfillService genreBackfillService;
+
+    @Autowired
+    private BadgeBackfillService badgeBackfillService;
+
+    @PostMapping("/counters/reconcile")
+    public ResponseEntity<ApiResponse> reconcileMovieCounters() {
+        try {
+            long drifted = movieCounterService.reconcile();
+            logger.info("Movie counter reconciliation fixed {} movies", drifted);
+            return ResponseEntity.ok(new ApiResponse(true, "Reconciled movie counters, " + drifted + " movies had drifted"));
+        } catch (Exception e) {
+            logger.error("Error reconciling movie counters", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reconciling movie counters");
+        }
+    }
+
+    @PostMapping("/user-stats/rebuild")
+    public ResponseEntity<ApiResponse> rebuildAllUserStats() {
+        try {
+            int rebuilt = userStatsService.rebuildAll();
+            return ResponseEntity.ok(new ApiResponse(true, "Rebuilt user stats for " + rebuilt + " users"));
+        } catch (Exception e) {
+            logger.error("Error rebuilding user stats", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error rebuilding user stats");
+        }
+    }
+
+    @PostMapping("/user-stats/rebuild/{userId}")
+    public ResponseEntity<ApiResponse> rebuildUserStats(@PathVariable Long userId) {
+        try {
+            userStatsService.rebuild(userId);
+            return ResponseEntity.ok(new ApiResponse(true, "Rebuilt user stats for user " + userId));
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error rebuilding user stats for user {}", userId, e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error rebuilding user stats");
+        }
+    }
+
+    @PostMapping("/watch-events/backfill")
+    public ResponseEntity<ApiResponse> backfillWatchEvents() {
+        try {
+            long created = watchEventService.backfill();
+            return ResponseEntity.ok(new ApiResponse(true, "Created " + created + " watch events"));
+        } catch (Exception e) {
+            logger.error("Error backfilling watch events", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error backfilling watch events");
+        }
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<ApiResponse> rebuildMonthlyRollups() {
+        try {
+            watchEventService.rebuildRollups();
+            return ResponseEntity.ok(new ApiResponse(true, "Rebuilt monthly rollups from watch events"));
+        } catch (Exception e) {
+            logger.error("Error rebuilding monthly rollups", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error rebuilding monthly rollups");
+        }
+    }
+
+    @PostMapping("/fact-store/rebuild")
+    public ResponseEntity<ApiResponse> rebuildFactStore() {
+        try {
+            movieFactStore.rebuild();
+            return ResponseEntity.ok(new ApiResponse(true, "Reloaded movie fact store from the database"));
+        } catch (Exception e) {
+            logger.error("Error rebuilding movie fact store", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error rebuilding movie fact store");
+        }
+    }
+
+    @PostMapping("/genres/backfill")
+    public ResponseEntity<ApiResponse> backfillGenreMasks() {
+        try {
+            int users = genreBackfillService.backfill();
+            return ResponseEntity.ok(new ApiResponse(true, "Backfilled genre masks for movies of " + users + " users"));
+        } catch (Exception e) {
+            logger.error("Error backfilling genre masks", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error backfilling genre masks");
+        }
+    }
+
+    /**
+     * Starts awarding every badge rule to the users who already qualify. Poll the GET
+     * endpoint for progress.
+     */
+    @PostMapping("/badges/backfill")
+    public ResponseEntity<Map<String, Object>> startBadgeBackfill() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(badgeBackfillService.start());
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error starting badge backfill", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error starting badge backfill");
+        }
+    }
+
+    @GetMapping("/badges/backfill")
+    public ResponseEntity<Map<String, Object>> getBadgeBackfillProgress() {
+        return ResponseEntity.ok(badgeBackfillService.getProgress());
+    }
+}
@@ -8,17 +8,21 @@ import com.movielist.payload.GenreStatsResponse;
 import com.movielist.payload.MonthlyStatsResponse;
 import com.movielist.repository.UserRepository;
 import com.movielist.service.AnalyticsService;
+import com.movielist.service.GlobalAnalyticsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
- 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -33,6 +37,9 @@ public class AnalyticsController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
     @GetMapping("/me")
     public ResponseEntity<AnalyticsResponse> getCurrentUserAnalytics() {
         try {
@@ -96,12 +103,15 @@ public class AnalyticsController {
     }
 
     @GetMapping("/monthly/me")
-    public ResponseEntity<List<MonthlyStatsResponse>> getCurrentUserMonthlyStats() {
+    public ResponseEntity<List<MonthlyStatsResponse>> getCurrentUserMonthlyStats(@RequestParam(required = false) String from,
+                                                                                  @RequestParam(required = false) String to) {
+        YearMonth fromMonth = parseMonth("from", from);
+        YearMonth toMonth = parseMonth("to", to);
         try {
             User user = userRepository.findByUsername("guest")
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", "guest"));
             
-            List<MonthlyStatsResponse> monthlyStats = analyticsService.getUserMonthlyStats(user.getId());
+            List<MonthlyStatsResponse> monthlyStats = analyticsService.getUserMonthlyStats(user.getId(), fromMonth, toMonth);
             return ResponseEntity.ok(monthlyStats);
         } catch (ResourceNotFoundException e) {
             logger.error("User not found: {}", e.getMessage());
@@ -113,9 +123,13 @@ public class AnalyticsController {
     }
 
     @GetMapping("/monthly/user/{userId}")
-    public ResponseEntity<List<MonthlyStatsResponse>> getUserMonthlyStats(@PathVariable Long userId) {
+    public ResponseEntity<List<MonthlyStatsResponse>> getUserMonthlyStats(@PathVariable Long userId,
+                                                                           @RequestParam(required = false) String from,
+                                                                           @RequestParam(required = false) String to) {
+        YearMonth fromMonth = parseMonth("from", from);
+        YearMonth toMonth = parseMonth("to", to);
         try {
-            List<MonthlyStatsResponse> monthlyStats = analyticsService.getUserMonthlyStats(userId);
+            List<MonthlyStatsResponse> monthlyStats = analyticsService.getUserMonthlyStats(userId, fromMonth, toMonth);
             return ResponseEntity.ok(monthlyStats);
         } catch (ResourceNotFoundException e) {
             logger.error("User not found with ID: {}", userId, e);
@@ -127,10 +141,15 @@ public class AnalyticsController {
     }
 
     @GetMapping("/global")
-    public ResponseEntity<AnalyticsResponse> getGlobalAnalytics() {
+    public ResponseEntity<AnalyticsResponse> getGlobalAnalytics(@RequestParam(defaultValue = "false") boolean approx) {
         try {
-            AnalyticsResponse globalAnalytics = analyticsService.getGlobalAnalytics();
-            return ResponseEntity.ok(globalAnalytics);
+            GlobalAnalyticsCache.Snapshot snapshot = globalAnalyticsCache.getSnapshot();
+            if (approx && analyticsService.isApproximateModeAvailable()) {
+                // Social totals still come from the snapshot, hence its headers
+                AnalyticsResponse approximate = analyticsService.getApproximateGlobalAnalytics(snapshot.analytics());
+                return ResponseEntity.ok().headers(snapshotHeaders(snapshot)).body(approximate);
+            }
+            return ResponseEntity.ok().headers(snapshotHeaders(snapshot)).body(snapshot.analytics());
         } catch (Exception e) {
             logger.error("Error retrieving global analytics", e);
             throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving global analytics");
@@ -138,10 +157,13 @@ public class AnalyticsController {
     }
 
     @GetMapping("/global/genres")
-    public ResponseEntity<List<GenreStatsResponse>> getGlobalGenreStats() {
+    public ResponseEntity<List<GenreStatsResponse>> getGlobalGenreStats(@RequestParam(defaultValue = "false") boolean approx) {
         try {
-            List<GenreStatsResponse> globalGenreStats = analyticsService.getGlobalGenreStats();
-            return ResponseEntity.ok(globalGenreStats);
+            if (approx && analyticsService.isApproximateModeAvailable()) {
+                return ResponseEntity.ok(analyticsService.getApproximateGlobalGenreStats());
+            }
+            GlobalAnalyticsCache.Snapshot snapshot = globalAnalyticsCache.getSnapshot();
+            return ResponseEntity.ok().headers(snapshotHeaders(snapshot)).body(snapshot.genres());
         } catch (Exception e) {
             logger.error("Error retrieving global genre stats", e);
             throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving global genre statistics");
@@ -151,11 +173,31 @@ public class AnalyticsController {
     @GetMapping("/global/monthly")
     public ResponseEntity<List<MonthlyStatsResponse>> getGlobalMonthlyStats() {
         try {
-            List<MonthlyStatsResponse> globalMonthlyStats = analyticsService.getGlobalMonthlyStats();
-            return ResponseEntity.ok(globalMonthlyStats);
+            GlobalAnalyticsCache.Snapshot snapshot = globalAnalyticsCache.getSnapshot();
+            return ResponseEntity.ok().headers(snapshotHeaders(snapshot)).body(snapshot.monthly());
         } catch (Exception e) {
             logger.error("Error retrieving global monthly stats", e);
             throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving global monthly statistics");
         }
     }
-}
\ No newline at end of file
+
+    private YearMonth parseMonth(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Invalid " + name + " month, expected YYYY-MM: " + value);
+        }
+    }
+
+    // Standard Age header in seconds, plus millisecond precision for dashboards
+    private HttpHeaders snapshotHeaders(GlobalAnalyticsCache.Snapshot snapshot) {
+        long ageMillis = snapshot.age().toMillis();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AGE, String.valueOf(ageMillis / 1000));
+        headers.set("X-Snapshot-Age-Ms", String.valueOf(ageMillis));
+        return headers;
+    }
+}
@@ -7,6 +7,8 @@ import com.movielist.payload.JwtAuthenticationResponse;
 import com.movielist.payload.LoginRequest;
 import com.movielist.payload.SignUpRequest;
 import com.movielist.repository.UserRepository;
+import com.movielist.service.LeaderboardService;
+import com.movielist.service.UserStatsService;
  
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +28,12 @@ public class AuthController {
 
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private UserStatsService userStatsService;
     
 
     @PostMapping("/signin")
@@ -53,7 +61,9 @@ public class AuthController {
             user.setPassword(signUpRequest.getPassword());
             user.setRole(User.Role.USER);
 
-            userRepository.save(user);
+            User saved = userRepository.save(user);
+            userStatsService.createFor(saved.getId());
+            leaderboardService.addUserAfterCommit(saved.getId());
             logger.info("User registered successfully: {}", signUpRequest.getUsername());
             return ResponseEntity.ok(new ApiResponse(true, "User registered successfully"));
         } catch (Exception e) {
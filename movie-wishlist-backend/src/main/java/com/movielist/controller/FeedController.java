@@ -0,0 +1,45 @@
+package com.movielist.controller;
+
+import com.movielist.entity.User;
+import com.movielist.exception.ApiException;
+import com.movielist.exception.ResourceNotFoundException;
+import com.movielist.payload.FeedItemResponse;
+import com.movielist.payload.PageResponse;
+import com.movielist.service.FeedService;
+import com.movielist.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/feed")
+public class FeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedController.class);
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping
+    public ResponseEntity<PageResponse<FeedItemResponse>> getFeed(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer size) {
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            return ResponseEntity.ok(feedService.getFeed(user, cursor, size));
+        } catch (ResourceNotFoundException | ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving activity feed", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving activity feed");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.movielist.controller;
+
+import com.movielist.service.BadgeService;
+import com.movielist.service.DomainEventBus;
+import com.movielist.service.FeedService;
+import com.movielist.service.FollowGraphService;
+import com.movielist.service.GlobalAnalyticsCache;
+import com.movielist.service.LeaderboardService;
+import com.movielist.service.LikedMovieCache;
+import com.movielist.service.MovieFactStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private LikedMovieCache likedMovieCache;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private BadgeService badgeService;
+
+    @Autowired
+    private DomainEventBus domainEventBus;
+
+    @GetMapping("/liked-cache")
+    public ResponseEntity<Map<String, Object>> getLikedCacheMetrics() {
+        return ResponseEntity.ok(likedMovieCache.getStats());
+    }
+
+    @GetMapping("/global-analytics")
+    public ResponseEntity<Map<String, Object>> getGlobalAnalyticsCacheMetrics() {
+        return ResponseEntity.ok(globalAnalyticsCache.getStats());
+    }
+
+    @GetMapping("/fact-store")
+    public ResponseEntity<Map<String, Object>> getFactStoreMetrics() {
+        return ResponseEntity.ok(movieFactStore.getStats());
+    }
+
+    @GetMapping("/leaderboard")
+    public ResponseEntity<Map<String, Object>> getLeaderboardMetrics() {
+        return ResponseEntity.ok(leaderboardService.getStats());
+    }
+
+    @GetMapping("/follow-graph")
+    public ResponseEntity<Map<String, Object>> getFollowGraphMetrics() {
+        return ResponseEntity.ok(followGraphService.getStats());
+    }
+
+    @GetMapping("/feed")
+    public ResponseEntity<Map<String, Object>> getFeedMetrics() {
+        return ResponseEntity.ok(feedService.getStats());
+    }
+
+    @GetMapping("/badges")
+    public ResponseEntity<Map<String, Object>> getBadgeMetrics() {
+        return ResponseEntity.ok(badgeService.getStats());
+    }
+
+    @GetMapping("/events")
+    public ResponseEntity<Map<String, Object>> getEventMetrics() {
+        return ResponseEntity.ok(domainEventBus.getStats());
+    }
+}
\ No newline at end of file
@@ -5,21 +5,29 @@ import com.movielist.entity.User;
 import com.movielist.exception.ApiException;
 import com.movielist.exception.ResourceNotFoundException;
 import com.movielist.payload.ApiResponse;
+import com.movielist.payload.MovieBatchRequest;
+import com.movielist.payload.MovieImportResponse;
 import com.movielist.payload.MovieRequest;
 import com.movielist.payload.MovieResponse;
+import com.movielist.payload.PageResponse;
 import com.movielist.repository.MovieRepository;
 import com.movielist.repository.UserRepository;
+import com.movielist.service.MovieImportService;
 import com.movielist.service.UserService;
 import com.movielist.service.MovieService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
  
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,11 +46,14 @@ public class MovieController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MovieImportService movieImportService;
+
     @GetMapping("/wishlist")
-    public ResponseEntity<List<MovieResponse>> getWishlistMovies() {
+    public ResponseEntity<List<MovieResponse>> getWishlistMovies(@RequestParam(required = false) String genre) {
         try {
             User user = userService.getOrCreateDefaultUser();
-            List<MovieResponse> wishlistMovies = movieService.getWishlistMovies(user);
+            List<MovieResponse> wishlistMovies = movieService.getWishlistMovies(user, genre);
             return ResponseEntity.ok(wishlistMovies);
         } catch (ResourceNotFoundException e) {
             logger.error("User not found: {}", e.getMessage());
@@ -54,10 +65,10 @@ public class MovieController {
     }
 
     @GetMapping("/watched")
-    public ResponseEntity<List<MovieResponse>> getWatchedMovies() {
+    public ResponseEntity<List<MovieResponse>> getWatchedMovies(@RequestParam(required = false) String genre) {
         try {
             User user = userService.getOrCreateDefaultUser();
-            List<MovieResponse> watchedMovies = movieService.getWatchedMovies(user);
+            List<MovieResponse> watchedMovies = movieService.getWatchedMovies(user, genre);
             return ResponseEntity.ok(watchedMovies);
         } catch (ResourceNotFoundException e) {
             logger.error("User not found: {}", e.getMessage());
@@ -68,10 +79,33 @@ public class MovieController {
         }
     }
 
+    @GetMapping("/wishlist/page")
+    public ResponseEntity<PageResponse<MovieResponse>> getWishlistMoviesPage(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return getDefaultUserMoviesPage(Movie.Status.WISHLIST, cursor, size);
+    }
+
+    @GetMapping("/watched/page")
+    public ResponseEntity<PageResponse<MovieResponse>> getWatchedMoviesPage(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return getDefaultUserMoviesPage(Movie.Status.WATCHED, cursor, size);
+    }
+
+    @GetMapping(value = "/wishlist/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamWishlistMovies() {
+        User user = userService.getOrCreateDefaultUser();
+        return streamMovies(user.getId(), Movie.Status.WISHLIST, user.getId());
+    }
+
+    @GetMapping(value = "/watched/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamWatchedMovies() {
+        User user = userService.getOrCreateDefaultUser();
+        return streamMovies(user.getId(), Movie.Status.WATCHED, user.getId());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<MovieResponse> getMovieById(@PathVariable Long id) {
         try {
-            MovieResponse movie = movieService.getMovieById(id);
+            User user = userService.getOrCreateDefaultUser();
+            MovieResponse movie = movieService.getMovieById(id, user);
             return ResponseEntity.ok(movie);
         } catch (ResourceNotFoundException e) {
             logger.error("Movie not found: {}", e.getMessage());
@@ -97,6 +131,21 @@ public class MovieController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE, "application/jsonl"})
+    public ResponseEntity<MovieImportResponse> importMovies(InputStream body, @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) {
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            MovieImportResponse result = movieImportService.importMovies(body, contentType, user);
+            return ResponseEntity.ok(result);
+        } catch (ApiException e) {
+            logger.error("Rejected movie import: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error importing movies: {}", e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to import movies: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<MovieResponse> updateMovie(@PathVariable Long id, @Valid @RequestBody MovieRequest movieRequest) {
         try {
@@ -142,10 +191,60 @@ public class MovieController {
         }
     }
 
+    @PutMapping("/batch/mark-watched")
+    public ResponseEntity<ApiResponse> batchMarkAsWatched(@Valid @RequestBody MovieBatchRequest batchRequest) {
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            int updated = movieService.batchMarkAsWatched(batchRequest.getIds(), batchRequest.getRating(), batchRequest.getReview(), user);
+            return ResponseEntity.ok(new ApiResponse(true, updated + " movies marked as watched"));
+        } catch (ApiException e) {
+            logger.error("Rejected batch request for movies {}: {}", batchRequest.getIds(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error marking movies {} as watched: {}", batchRequest.getIds(), e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to mark movies as watched: " + e.getMessage());
+        }
+    }
+
+    @PutMapping("/batch/status")
+    public ResponseEntity<ApiResponse> batchUpdateStatus(@Valid @RequestBody MovieBatchRequest batchRequest) {
+        if (batchRequest.getStatus() == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "status is required");
+        }
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            int updated = movieService.batchUpdateStatus(batchRequest.getIds(), batchRequest.getStatus(), user);
+            return ResponseEntity.ok(new ApiResponse(true, updated + " movies moved to " + batchRequest.getStatus()));
+        } catch (ApiException e) {
+            logger.error("Rejected batch request for movies {}: {}", batchRequest.getIds(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error changing status of movies {}: {}", batchRequest.getIds(), e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to change movie status: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/batch/delete")
+    public ResponseEntity<ApiResponse> batchDeleteMovies(@Valid @RequestBody MovieBatchRequest batchRequest) {
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            int deleted = movieService.batchDeleteMovies(batchRequest.getIds(), user);
+            return ResponseEntity.ok(new ApiResponse(true, deleted + " movies deleted successfully"));
+        } catch (ApiException e) {
+            logger.error("Rejected batch request for movies {}: {}", batchRequest.getIds(), e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error deleting movies {}: {}", batchRequest.getIds(), e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to delete movies: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<MovieResponse>> getUserMovies(@PathVariable Long userId, @RequestParam(required = false) Movie.Status status) {
+    public ResponseEntity<List<MovieResponse>> getUserMovies(@PathVariable Long userId, @RequestParam(required = false) Movie.Status status,
+                                                             @RequestParam(required = false) String genre) {
         try {
-            List<MovieResponse> movies = movieService.getUserMovies(userId, status);
+            User viewer = userService.getOrCreateDefaultUser();
+            List<MovieResponse> movies = movieService.getUserMovies(userId, status, genre, viewer);
             return ResponseEntity.ok(movies);
         } catch (ResourceNotFoundException e) {
             logger.error("User not found: {}", e.getMessage());
@@ -155,4 +254,50 @@ public class MovieController {
             throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get user movies: " + e.getMessage());
         }
     }
+
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponse<MovieResponse>> getUserMoviesPage(@PathVariable Long userId, @RequestParam(required = false) Movie.Status status,
+                                                                         @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        try {
+            User viewer = userService.getOrCreateDefaultUser();
+            PageResponse<MovieResponse> page = movieService.getUserMoviesPage(userId, status, cursor, size, viewer);
+            return ResponseEntity.ok(page);
+        } catch (ResourceNotFoundException | ApiException e) {
+            logger.error("Error getting movie page for user ID {}: {}", userId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error getting movie page for user ID {}: {}", userId, e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get user movies: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserMovies(@PathVariable Long userId, @RequestParam(required = false) Movie.Status status) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
+        User viewer = userService.getOrCreateDefaultUser();
+        return streamMovies(userId, status, viewer.getId());
+    }
+
+    private ResponseEntity<PageResponse<MovieResponse>> getDefaultUserMoviesPage(Movie.Status status, String cursor, Integer size) {
+        try {
+            User user = userService.getOrCreateDefaultUser();
+            PageResponse<MovieResponse> page = movieService.getUserMoviesPage(user.getId(), status, cursor, size, user);
+            return ResponseEntity.ok(page);
+        } catch (ResourceNotFoundException | ApiException e) {
+            logger.error("Error getting {} movie page: {}", status, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error getting {} movie page: {}", status, e.getMessage());
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get movies: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamMovies(Long userId, Movie.Status status, Long viewerId) {
+        StreamingResponseBody body = out -> movieService.streamUserMovies(userId, status, viewerId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
\ No newline at end of file
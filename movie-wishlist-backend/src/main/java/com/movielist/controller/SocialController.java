@@ -40,8 +40,8 @@ public class SocialController {
         try {
             User user = userService.getOrCreateDefaultUser();
             
-            socialService.likeMovie(movieId, user);
-            return ResponseEntity.ok(new ApiResponse(true, "Movie liked successfully"));
+            boolean liked = socialService.likeMovie(movieId, user);
+            return ResponseEntity.ok(new ApiResponse(true, liked ? "Movie liked successfully" : "Movie was already liked"));
         } catch (ResourceNotFoundException e) {
             logger.error("Resource not found: {}", e.getMessage());
             throw e;
@@ -56,8 +56,8 @@ public class SocialController {
         try {
             User user = userService.getOrCreateDefaultUser();
             
-            socialService.unlikeMovie(movieId, user);
-            return ResponseEntity.ok(new ApiResponse(true, "Movie unliked successfully"));
+            boolean unliked = socialService.unlikeMovie(movieId, user);
+            return ResponseEntity.ok(new ApiResponse(true, unliked ? "Movie unliked successfully" : "Movie was not liked"));
         } catch (ResourceNotFoundException e) {
             logger.error("Resource not found: {}", e.getMessage());
             throw e;
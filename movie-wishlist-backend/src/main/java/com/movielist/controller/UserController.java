@@ -4,6 +4,10 @@ import com.movielist.entity.User;
 import com.movielist.exception.ApiException;
 import com.movielist.exception.ResourceNotFoundException;
 import com.movielist.payload.ApiResponse;
+import com.movielist.payload.FollowStatusResponse;
+import com.movielist.payload.FollowSuggestionResponse;
+import com.movielist.payload.LeaderboardEntryResponse;
+import com.movielist.payload.PageResponse;
 import com.movielist.payload.UserProfileRequest;
 import com.movielist.payload.UserProfileResponse;
 import com.movielist.service.UserService;
@@ -128,6 +132,90 @@ public class UserController {
         }
     }
 
+    @GetMapping("/follow-status/{username}")
+    public ResponseEntity<FollowStatusResponse> getFollowStatus(@PathVariable String username) {
+        try {
+            return ResponseEntity.ok(userService.getFollowStatus("guest", username));
+        } catch (ResourceNotFoundException e) {
+            logger.error("User not found when checking follow status: {}", username);
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error checking follow status for {}", username, e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error checking follow status");
+        }
+    }
+
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<FollowSuggestionResponse>> getFollowSuggestions(@RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(userService.getFollowSuggestions("guest", limit));
+        } catch (ResourceNotFoundException e) {
+            logger.error("User not found when retrieving follow suggestions", e);
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving follow suggestions", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving follow suggestions");
+        }
+    }
+
+    @GetMapping("/followers/page")
+    public ResponseEntity<PageResponse<UserProfileResponse>> getFollowersPage(@RequestParam(required = false) String cursor,
+                                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(userService.getFollowersPage("guest", cursor, size));
+        } catch (ResourceNotFoundException | ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving followers page", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving followers");
+        }
+    }
+
+    @GetMapping("/following/page")
+    public ResponseEntity<PageResponse<UserProfileResponse>> getFollowingPage(@RequestParam(required = false) String cursor,
+                                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(userService.getFollowingPage("guest", cursor, size));
+        } catch (ResourceNotFoundException | ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving following page", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving following users");
+        }
+    }
+
+    @GetMapping("/leaderboard/page")
+    public ResponseEntity<List<LeaderboardEntryResponse>> getLeaderboardPage(@RequestParam(required = false) Integer page,
+                                                                             @RequestParam(required = false) Integer size,
+                                                                             @RequestParam(required = false) Integer window,
+                                                                             @RequestParam(required = false) String genre) {
+        try {
+            return ResponseEntity.ok(userService.getLeaderboardPage(page, size, window, genre));
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving leaderboard page", e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving leaderboard");
+        }
+    }
+
+    @GetMapping("/leaderboard/rank/{userId}")
+    public ResponseEntity<LeaderboardEntryResponse> getLeaderboardRank(@PathVariable Long userId,
+                                                                       @RequestParam(required = false) Integer window,
+                                                                       @RequestParam(required = false) String genre) {
+        try {
+            return ResponseEntity.ok(userService.getLeaderboardRank(userId, window, genre));
+        } catch (ResourceNotFoundException e) {
+            logger.error("User not found on leaderboard: {}", userId);
+            throw e;
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving leaderboard rank for user {}", userId, e);
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving leaderboard rank");
+        }
+    }
+
     @GetMapping("/leaderboard")
     public ResponseEntity<List<UserProfileResponse>> getLeaderboard() {
         try {
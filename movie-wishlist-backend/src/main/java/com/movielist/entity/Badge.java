@@ -11,11 +11,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "badges")
+@Table(name = "badges", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_badges_user_badge", columnNames = {"user_id", "badge_name"})
+})
 public class Badge {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "badges_seq")
+    @SequenceGenerator(name = "badges_seq", sequenceName = "badges_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
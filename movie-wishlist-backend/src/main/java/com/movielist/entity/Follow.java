@@ -10,11 +10,16 @@ import jakarta.persistence.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "follows")
+@Table(name = "follows", indexes = {
+        // Keyset pages of a user's followers and of the users they follow
+        @Index(name = "idx_follows_following_follower", columnList = "following_id, follower_id"),
+        @Index(name = "idx_follows_follower_following", columnList = "follower_id, following_id")
+})
 public class Follow {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "follows_seq")
+    @SequenceGenerator(name = "follows_seq", sequenceName = "follows_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "follower_id", nullable = false)
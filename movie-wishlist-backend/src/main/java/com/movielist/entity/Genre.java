@@ -0,0 +1,29 @@
+package com.movielist.entity;
+
+import com.movielist.util.GenreDictionary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+/**
+ * One entry of the genre dictionary. The id is the genre's bit position in
+ * {@code movies.genre_mask}, so it is assigned by GenreService rather than a sequence and
+ * must never be reused for another name.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "genres")
+public class Genre {
+
+    // 0..63
+    @Id
+    @Column(name = "bit_index")
+    private Integer bit;
+
+    @Column(nullable = false, unique = true, length = GenreDictionary.MAX_NAME_LENGTH)
+    private String name;
+}
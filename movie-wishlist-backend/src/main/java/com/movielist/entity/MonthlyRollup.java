@@ -0,0 +1,50 @@
+package com.movielist.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Watch totals of one user (or of everyone, under user id 0) for one UTC month, maintained
+ * incrementally from watch_events by WatchEventService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "monthly_rollups")
+@IdClass(MonthlyRollup.Key.class)
+public class MonthlyRollup {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // yyyymm
+    @Id
+    @Column(name = "bucket_month")
+    private Integer bucketMonth;
+
+    @Column(name = "watch_count", nullable = false)
+    private Long watchCount = 0L;
+
+    @Column(name = "runtime_sum", nullable = false)
+    private Long runtimeSum = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Integer bucketMonth;
+    }
+}
@@ -3,6 +3,7 @@ package com.movielist.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import jakarta.persistence.*;
 import java.time.Instant;
@@ -13,11 +14,17 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "movies")
+// Serve the keyset pages, ordered by (updated_at DESC, id DESC) within one user's
+// library, with or without a status filter
+@Table(name = "movies", indexes = {
+        @Index(name = "idx_movies_user_status_updated", columnList = "user_id, status, updated_at, id"),
+        @Index(name = "idx_movies_user_updated", columnList = "user_id, updated_at, id")
+})
 public class Movie {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -25,6 +32,11 @@ public class Movie {
 
     private String genre;
 
+    // One bit per genre named in the free-text genre, bit positions from the genres table
+    @ColumnDefault("0")
+    @Column(name = "genre_mask", nullable = false)
+    private Long genreMask = 0L;
+
     @Column(name = "release_year")
     private Integer releaseYear;
 
@@ -44,9 +56,20 @@ public class Movie {
     @Column(name = "created_at")
     private Instant createdAt;
     
-    @Column(name = "updated_at")
+    // Never null, so every row has a place in the keyset pages ordered on it
+    @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
+    // Denormalized social counters, maintained by MovieCounterService with batched
+    // relative updates. Never written through the entity so saves cannot clobber them.
+    @ColumnDefault("0")
+    @Column(name = "likes_count", nullable = false, updatable = false)
+    private Long likesCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(name = "comments_count", nullable = false, updatable = false)
+    private Long commentsCount = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
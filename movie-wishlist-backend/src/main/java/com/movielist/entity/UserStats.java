@@ -0,0 +1,58 @@
+package com.movielist.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed per-user library totals, kept in step with the movies table by
+ * UserStatsService inside the same transaction as every movie write. The follow counts
+ * are kept the same way by every follow and unfollow.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_stats")
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "wishlist_count", nullable = false)
+    private Long wishlistCount = 0L;
+
+    @Column(name = "watched_count", nullable = false)
+    private Long watchedCount = 0L;
+
+    // Sum of runtimes of watched movies, in minutes
+    @Column(name = "runtime_sum", nullable = false)
+    private Long runtimeSum = 0L;
+
+    // Sum and count of ratings of watched movies that have one
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L;
+
+    // Nullable only so the columns can be added to an existing table; UserStatsService
+    // fills them in on startup
+    @Column(name = "followers_count")
+    private Long followersCount = 0L;
+
+    @Column(name = "following_count")
+    private Long followingCount = 0L;
+
+    // Watched movies per genre
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "user_genre_stats", joinColumns = @JoinColumn(name = "user_id"))
+    @MapKeyColumn(name = "genre")
+    @Column(name = "watched_count", nullable = false)
+    private Map<String, Long> genreCounts = new HashMap<>();
+}
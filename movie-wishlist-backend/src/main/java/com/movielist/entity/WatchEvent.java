@@ -0,0 +1,46 @@
+package com.movielist.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One viewing of a movie. Rows are only ever appended (a rewatch is a new row), and they
+ * hold plain ids rather than foreign keys so history survives the movie being deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "watch_events", indexes = {
+        @Index(name = "idx_watch_events_user_movie", columnList = "user_id, movie_id"),
+        @Index(name = "idx_watch_events_watched_at", columnList = "watched_at")
+})
+public class WatchEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "watch_events_seq")
+    @SequenceGenerator(name = "watch_events_seq", sequenceName = "watch_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "movie_id", nullable = false)
+    private Long movieId;
+
+    @Column(name = "watched_at", nullable = false)
+    private Instant watchedAt;
+
+    // UTC month of watchedAt as yyyymm, the key of the monthly rollups
+    @Column(name = "bucket_month", nullable = false)
+    private Integer bucketMonth;
+
+    // Runtime and rating as of the viewing
+    private Integer runtime;
+
+    private Integer rating;
+}
@@ -0,0 +1,37 @@
+package com.movielist.event;
+
+import java.time.Instant;
+
+/**
+ * Something a user did to a movie. Services publish events through
+ * {@link com.movielist.service.DomainEventBus} in the transaction that made the change;
+ * consumers see them once it commits. Events are plain values so they can be stored in
+ * the outbox table as JSON and read back after a restart.
+ */
+public sealed interface DomainEvent {
+
+    long userId();
+
+    long movieId();
+
+    record MovieAdded(long userId, long movieId, Instant at) implements DomainEvent {
+    }
+
+    /**
+     * A viewing. watchedCount and watchMinutes are the user's totals including it.
+     */
+    record MovieWatched(long userId, long movieId, Instant at, long watchedCount, long watchMinutes) implements DomainEvent {
+    }
+
+    record MovieDeleted(long userId, long movieId) implements DomainEvent {
+    }
+
+    record MovieLiked(long userId, long movieId, Instant at) implements DomainEvent {
+    }
+
+    record MovieUnliked(long userId, long movieId) implements DomainEvent {
+    }
+
+    record CommentAdded(long userId, long movieId, long commentId, Instant at) implements DomainEvent {
+    }
+}
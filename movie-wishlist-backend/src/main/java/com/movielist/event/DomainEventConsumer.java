@@ -0,0 +1,34 @@
+package com.movielist.event;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A side effect of domain events. Every bean implementing this gets its own worker thread
+ * and bounded queue in {@link com.movielist.service.DomainEventBus}.
+ */
+public interface DomainEventConsumer {
+
+    /**
+     * Short name for the worker thread and the metrics.
+     */
+    String name();
+
+    Set<Class<? extends DomainEvent>> eventTypes();
+
+    /**
+     * Handles a batch of events in commit order. Throwing makes the bus retry the batch's
+     * events one at a time, and events are replayed after a restart, so the same event may
+     * be seen more than once. An event that keeps failing is dropped after
+     * {@code movielist.events.max-attempts} attempts.
+     */
+    void handle(List<DomainEvent> events);
+
+    /**
+     * Whether undelivered events must survive a restart. Consumers that rebuild their
+     * state from the database on startup can return false to skip the outbox.
+     */
+    default boolean durable() {
+        return true;
+    }
+}
@@ -1,9 +1,13 @@
 package com.movielist.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,4 +22,16 @@ public class AnalyticsResponse {
     private Long totalComments;
     private Long totalFollowers;
     private Long totalFollowing;
-}
\ No newline at end of file
+
+    // Approximate mode only (?approx=true), omitted from exact responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long distinctWatchers;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Double> ratingPercentiles;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Double> runtimePercentiles;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<GenreStatsResponse> topGenres;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SketchErrorBounds errorBounds;
+}
@@ -0,0 +1,29 @@
+package com.movielist.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedItemResponse {
+    private Long id; // Position in the feed; larger ids are newer
+    private String type; // ADDED, WATCHED, LIKED or COMMENTED
+    private Instant createdAt;
+    private Long userId;
+    private String username;
+    private String userProfilePictureUrl;
+    private Long movieId;
+    private String movieTitle;
+
+    // Set for COMMENTED items only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long commentId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String comment;
+}
@@ -0,0 +1,15 @@
+package com.movielist.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowStatusResponse {
+    private String username;
+    private Boolean following; // The current user follows them
+    private Boolean followedBy; // They follow the current user
+    private Boolean mutual;
+}
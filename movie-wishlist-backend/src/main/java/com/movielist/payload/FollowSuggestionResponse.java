@@ -0,0 +1,13 @@
+package com.movielist.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowSuggestionResponse {
+    private Integer connections; // How many users the current user follows also follow this one
+    private UserProfileResponse user;
+}
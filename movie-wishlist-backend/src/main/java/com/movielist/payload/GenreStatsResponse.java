@@ -1,5 +1,6 @@
 package com.movielist.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,4 +13,11 @@ public class GenreStatsResponse {
     private Long count;
     private Double percentage;
     private Double averageRating;
-}
\ No newline at end of file
+    // Approximate mode only: estimated number of users who watched the genre
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long distinctUsers;
+
+    public GenreStatsResponse(String genre, Long count, Double percentage, Double averageRating) {
+        this(genre, count, percentage, averageRating, null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.movielist.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryResponse {
+    private Integer rank; // 1-based, ties broken by the lower user id
+    private Long watchedCount;
+    private UserProfileResponse user;
+}
@@ -0,0 +1,24 @@
+package com.movielist.payload;
+
+import com.movielist.entity.Movie;
+import lombok.Data;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class MovieBatchRequest {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@NotNull Long> ids;
+
+    // Only used by the status change endpoint
+    private Movie.Status status;
+
+    // Only used by the mark-watched endpoint
+    private Integer rating;
+
+    private String review;
+}
@@ -0,0 +1,18 @@
+package com.movielist.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieImportResponse {
+    private Long processed;
+    private Long imported;
+    private Long failed;
+    private Long durationMs;
+    private List<MovieImportError> errors; // Capped; failed holds the full count
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,6 +14,7 @@ public class MovieResponse {
     private Long id;
     private String title;
     private String genre;
+    private List<String> genres;
     private Integer releaseYear;
     private Integer runtime;
     private String posterUrl;
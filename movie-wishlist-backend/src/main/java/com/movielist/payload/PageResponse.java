@@ -0,0 +1,24 @@
+package com.movielist.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> content;
+    private String next; // Opaque cursor for the next page, null on the last page
+
+    // Total number of items when the source keeps a count, as a hint for clients
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+
+    public PageResponse(List<T> content, String next) {
+        this(content, next, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.movielist.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Accuracy of an approximate analytics response.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchErrorBounds {
+    // Relative standard error of distinct counts: about 68% of estimates fall within it, 95% within twice it
+    private Double distinctCountRelativeError;
+    // Largest rank error of the reported percentiles, as a fraction of all values
+    private Double ratingPercentileRankError;
+    private Double runtimePercentileRankError;
+    // Genre counts are exact running totals
+    private Double genreCountError;
+    // Removed or edited watched movies still included in distinct counts and percentiles
+    private Long staleEntries;
+}
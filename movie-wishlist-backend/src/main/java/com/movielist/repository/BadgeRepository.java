@@ -2,14 +2,32 @@ package com.movielist.repository;
 
 import com.movielist.entity.Badge;
 import com.movielist.entity.User;
+import com.movielist.repository.projection.UserBadge;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BadgeRepository extends JpaRepository<Badge, Long> {
     List<Badge> findByUser(User user);
     List<Badge> findByUserId(Long userId);
     boolean existsByUserAndBadgeName(User user, String badgeName);
+
+    // Badge names of many users without loading the entities, in the order they were earned
+    @Query("SELECT new com.movielist.repository.projection.UserBadge(b.user.id, b.badgeName) FROM Badge b " +
+           "WHERE b.user.id IN :userIds ORDER BY b.id")
+    List<UserBadge> findNamesByUserIds(Collection<Long> userIds);
+
+    // Every earned badge as (user, name), for bulk jobs; consume inside a transaction and close
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT new com.movielist.repository.projection.UserBadge(b.user.id, b.badgeName) FROM Badge b")
+    Stream<UserBadge> streamAllNames();
 }
\ No newline at end of file
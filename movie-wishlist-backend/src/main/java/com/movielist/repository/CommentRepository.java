@@ -4,9 +4,12 @@ import com.movielist.entity.Comment;
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,4 +22,15 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     Long countCommentsByMovieId(Long movieId);
 
     Long countByUser(User user);
+
+    // Id, author, movie and time of every comment since the given time, for warming up the feed
+    @Query("SELECT c.id, c.user.id, c.movie.id, c.createdAt FROM Comment c WHERE c.createdAt >= :since")
+    List<Object[]> findPostedSince(LocalDateTime since);
+
+    @Query("SELECT c.id, c.content FROM Comment c WHERE c.id IN :ids")
+    List<Object[]> findContentByIds(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.movie.id IN :movieIds")
+    int deleteByMovieIds(Collection<Long> movieIds);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.movielist.repository;
 
 import com.movielist.entity.Follow;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -28,4 +29,18 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
 
     @Query("SELECT f.followingId FROM Follow f WHERE f.followerId = :userId")
     List<Long> findFollowingIdsByFollowerId(Long userId);
+
+    // Every follow in id order, for loading the follow graph page by page
+    @Query("SELECT f.id, f.followerId, f.followingId FROM Follow f WHERE f.id > :afterId ORDER BY f.id")
+    List<Object[]> findEdgesAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT MAX(f.id) FROM Follow f")
+    Long findMaxId();
+
+    // Keyset pages in id order, each answered from one of the composite indexes
+    @Query("SELECT f.followerId FROM Follow f WHERE f.followingId = :userId AND f.followerId > :afterId ORDER BY f.followerId")
+    List<Long> findFollowerIdsPage(Long userId, Long afterId, Pageable pageable);
+
+    @Query("SELECT f.followingId FROM Follow f WHERE f.followerId = :userId AND f.followingId > :afterId ORDER BY f.followingId")
+    List<Long> findFollowingIdsPage(Long userId, Long afterId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.movielist.repository;
+
+import com.movielist.entity.Genre;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GenreRepository extends JpaRepository<Genre, Integer> {
+}
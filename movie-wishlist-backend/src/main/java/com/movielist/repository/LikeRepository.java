@@ -4,22 +4,40 @@ import com.movielist.entity.Like;
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
-import java.util.Optional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface LikeRepository extends JpaRepository<Like, Long> {
     List<Like> findByMovie(Movie movie);
     List<Like> findByUser(User user);
-    Optional<Like> findByUserAndMovie(User user, Movie movie);
-    boolean existsByUserAndMovie(User user, Movie movie);
     void deleteByUserAndMovie(User user, Movie movie);
+
+    // Inserts the like unless the user already likes the movie, returning 0 in that case. H2
+    // rejects a conflict target, so a taken id also returns 0; callers must tell the two apart
+    @Modifying
+    @Query(value = "INSERT INTO likes (id, user_id, movie_id) VALUES (:id, :userId, :movieId) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(Long id, Long userId, Long movieId);
+
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.user.id = :userId AND l.movie.id = :movieId")
+    int deleteByUserIdAndMovieId(Long userId, Long movieId);
+
     
     @Query("SELECT COUNT(l) FROM Like l WHERE l.movie.id = :movieId")
     Long countLikesByMovieId(Long movieId);
 
     Long countByUser(User user);
+
+    @Query("SELECT l.movie.id FROM Like l WHERE l.user.id = :userId")
+    List<Long> findLikedMovieIdsByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.movie.id IN :movieIds")
+    int deleteByMovieIds(Collection<Long> movieIds);
 }
\ No newline at end of file
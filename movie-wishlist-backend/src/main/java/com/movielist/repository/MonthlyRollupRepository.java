@@ -0,0 +1,13 @@
+package com.movielist.repository;
+
+import com.movielist.entity.MonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, MonthlyRollup.Key> {
+
+    List<MonthlyRollup> findByUserIdAndBucketMonthBetweenOrderByBucketMonth(Long userId, Integer from, Integer to);
+}
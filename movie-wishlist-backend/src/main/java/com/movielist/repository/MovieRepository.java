@@ -2,11 +2,24 @@ package com.movielist.repository;
 
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
+import com.movielist.repository.projection.GenreMaskAggregate;
+import com.movielist.repository.projection.StatusCount;
+import com.movielist.repository.projection.WatchSums;
+import com.movielist.repository.projection.WatchTotals;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Long> {
@@ -24,4 +37,112 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     
     @Query("SELECT COALESCE(SUM(m.runtime),0) FROM Movie m WHERE m.user.id = :userId AND m.status = 'WATCHED'")
     Long calculateTotalWatchTimeByUserId(Long userId);
+
+    // Global aggregates: return one small row per group instead of loading every movie
+    @Query("SELECT new com.movielist.repository.projection.StatusCount(m.status, COUNT(m)) FROM Movie m GROUP BY m.status")
+    List<StatusCount> countGroupedByStatus();
+
+    @Query("SELECT new com.movielist.repository.projection.WatchTotals(COUNT(m), COALESCE(SUM(m.runtime), 0L), AVG(m.rating)) " +
+           "FROM Movie m WHERE m.status = 'WATCHED'")
+    WatchTotals aggregateWatched();
+
+    // One row per distinct genre combination; callers expand the mask into its genres
+    @Query("SELECT new com.movielist.repository.projection.GenreMaskAggregate(m.genreMask, COUNT(m), " +
+           "COALESCE(SUM(m.runtime), 0L), COALESCE(SUM(m.rating), 0L), COUNT(m.rating)) " +
+           "FROM Movie m WHERE m.status = 'WATCHED' GROUP BY m.genreMask")
+    List<GenreMaskAggregate> aggregateWatchedByGenreMask();
+
+    // Per-user aggregates used to (re)build user_stats
+    @Query("SELECT new com.movielist.repository.projection.StatusCount(m.status, COUNT(m)) FROM Movie m " +
+           "WHERE m.user.id = :userId GROUP BY m.status")
+    List<StatusCount> countGroupedByStatusForUser(Long userId);
+
+    @Query("SELECT new com.movielist.repository.projection.WatchSums(COUNT(m), COALESCE(SUM(m.runtime), 0L), " +
+           "COALESCE(SUM(m.rating), 0L), COUNT(m.rating)) FROM Movie m WHERE m.user.id = :userId AND m.status = 'WATCHED'")
+    WatchSums sumWatchedForUser(Long userId);
+
+    @Query("SELECT new com.movielist.repository.projection.GenreMaskAggregate(m.genreMask, COUNT(m), " +
+           "COALESCE(SUM(m.runtime), 0L), COALESCE(SUM(m.rating), 0L), COUNT(m.rating)) " +
+           "FROM Movie m WHERE m.user.id = :userId AND m.status = 'WATCHED' GROUP BY m.genreMask")
+    List<GenreMaskAggregate> aggregateWatchedByGenreMaskForUser(Long userId);
+
+    // Watched movies per user and genre mask, for loading the per-genre leaderboards
+    @Query("SELECT m.user.id, m.genreMask, COUNT(m) FROM Movie m WHERE m.status = 'WATCHED' AND m.genreMask <> 0 " +
+           "GROUP BY m.user.id, m.genreMask")
+    List<Object[]> countWatchedPerUserAndGenreMask();
+
+    @Query("SELECT m.user.id, m.genreMask, COUNT(m) FROM Movie m WHERE m.user.id IN :userIds AND m.status = 'WATCHED' " +
+           "AND m.genreMask <> 0 GROUP BY m.user.id, m.genreMask")
+    List<Object[]> countWatchedPerGenreMaskOfUsers(Collection<Long> userIds);
+
+    // Genre mask, runtime and rating of each watched movie, without hydrating entities
+    @Query("SELECT m.genreMask, m.runtime, m.rating FROM Movie m WHERE m.user.id = :userId AND m.status = 'WATCHED'")
+    List<Object[]> findWatchedFactsByUserId(Long userId);
+
+    // Compact facts of every movie in id order, for loading MovieFactStore page by page
+    @Query("SELECT m.id, m.user.id, m.genreMask, m.runtime, m.rating, m.status FROM Movie m WHERE m.id > :afterId ORDER BY m.id")
+    List<Object[]> findFactsAfter(Long afterId, Pageable pageable);
+
+    // Movies with a genre but no mask yet, in id order, for the genre mask backfill
+    @Query("SELECT m.id, m.user.id, m.genre FROM Movie m " +
+           "WHERE m.id > :afterId AND m.genreMask = 0 AND m.genre IS NOT NULL AND m.genre <> '' ORDER BY m.id")
+    List<Object[]> findUnmaskedGenresAfter(Long afterId, Pageable pageable);
+
+    // Genre filters: a movie matches when it has any of the genres in the mask. The cast
+    // types the parameter, which H2 cannot infer inside bitand.
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId AND bitand(m.genreMask, cast(:genreMask as Long)) <> 0")
+    List<Movie> findByUserIdAndAnyGenre(Long userId, Long genreMask);
+
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId AND m.status = :status AND bitand(m.genreMask, cast(:genreMask as Long)) <> 0")
+    List<Movie> findByUserIdAndStatusAndAnyGenre(Long userId, Movie.Status status, Long genreMask);
+
+    @Query("SELECT m.id FROM Movie m WHERE m.id IN :ids AND m.user.id = :userId")
+    List<Long> findOwnedIds(Collection<Long> ids, Long userId);
+
+    // Bulk updates bypass entity callbacks, so updatedAt is set explicitly
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Movie m SET m.status = 'WATCHED', m.rating = :rating, m.review = :review, " +
+           "m.updatedAt = :now WHERE m.id IN :ids")
+    int markWatchedByIds(Collection<Long> ids, Integer rating, String review, Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Movie m SET m.status = :status, m.updatedAt = :now WHERE m.id IN :ids")
+    int updateStatusByIds(Collection<Long> ids, Movie.Status status, Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Movie m WHERE m.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+
+    // Keyset pagination on (updatedAt, id), newest first. The page size comes from the Pageable.
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId ORDER BY m.updatedAt DESC, m.id DESC")
+    List<Movie> findFirstPageByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId AND m.status = :status ORDER BY m.updatedAt DESC, m.id DESC")
+    List<Movie> findFirstPageByUserIdAndStatus(Long userId, Movie.Status status, Pageable pageable);
+
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId " +
+           "AND (m.updatedAt < :updatedAt OR (m.updatedAt = :updatedAt AND m.id < :id)) " +
+           "ORDER BY m.updatedAt DESC, m.id DESC")
+    List<Movie> findPageByUserIdAfter(Long userId, Instant updatedAt, Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId AND m.status = :status " +
+           "AND (m.updatedAt < :updatedAt OR (m.updatedAt = :updatedAt AND m.id < :id)) " +
+           "ORDER BY m.updatedAt DESC, m.id DESC")
+    List<Movie> findPageByUserIdAndStatusAfter(Long userId, Movie.Status status, Instant updatedAt, Long id, Pageable pageable);
+
+    // Cursor-backed streams; callers must consume them inside a transaction and close them
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId ORDER BY m.updatedAt DESC, m.id DESC")
+    Stream<Movie> streamByUserId(Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT m FROM Movie m WHERE m.user.id = :userId AND m.status = :status ORDER BY m.updatedAt DESC, m.id DESC")
+    Stream<Movie> streamByUserIdAndStatus(Long userId, Movie.Status status);
+
+    // Owner and creation time of every movie added since the given instant, for warming up the feed
+    @Query("SELECT m.id, m.user.id, m.createdAt FROM Movie m WHERE m.createdAt >= :since")
+    List<Object[]> findAddedSince(Instant since);
+
+    @Query("SELECT m.id, m.title FROM Movie m WHERE m.id IN :ids")
+    List<Object[]> findTitlesByIds(Collection<Long> ids);
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package com.movielist.repository;
 
 import com.movielist.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +15,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    // Watched-movie count of every user, including users with none, for the leaderboard
+    @Query("SELECT u.id, COUNT(m) FROM User u LEFT JOIN Movie m ON m.user = u AND m.status = 'WATCHED' GROUP BY u.id")
+    List<Object[]> countWatchedMoviesPerUser();
+
+    // The same for a few users, for re-reading users written while the leaderboard reloads
+    @Query("SELECT u.id, COUNT(m) FROM User u LEFT JOIN Movie m ON m.user = u AND m.status = 'WATCHED' " +
+           "WHERE u.id IN :userIds GROUP BY u.id")
+    List<Object[]> countWatchedMoviesOfUsers(Collection<Long> userIds);
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.movielist.repository;
+
+import com.movielist.entity.UserStats;
+import com.movielist.repository.projection.UserProfileTotals;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserStats s WHERE s.userId = :userId")
+    Optional<UserStats> findByIdForUpdate(Long userId);
+
+    // Creates an all-zero row unless the user has one; returns 0 when it already existed.
+    // user_id is the table's only unique key, so the conflict can only be on it
+    @Modifying
+    @Query(value = "INSERT INTO user_stats (user_id, wishlist_count, watched_count, runtime_sum, rating_sum, " +
+                   "rating_count, followers_count, following_count) VALUES (:userId, 0, 0, 0, 0, 0, 0, 0) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(Long userId);
+
+    // Profile totals of many users without loading the eager genre counts of each row
+    @Query("SELECT new com.movielist.repository.projection.UserProfileTotals(s.userId, s.watchedCount, s.runtimeSum, " +
+           "COALESCE(s.followersCount, 0L), COALESCE(s.followingCount, 0L)) FROM UserStats s WHERE s.userId IN :userIds")
+    List<UserProfileTotals> findProfileTotalsByUserIds(Collection<Long> userIds);
+
+    // Single-statement increments, so concurrent follows of one user need no read-modify-write
+    @Modifying
+    @Query("UPDATE UserStats s SET s.followersCount = s.followersCount + :delta WHERE s.userId = :userId")
+    int adjustFollowersCount(Long userId, long delta);
+
+    @Modifying
+    @Query("UPDATE UserStats s SET s.followingCount = s.followingCount + :delta WHERE s.userId = :userId")
+    int adjustFollowingCount(Long userId, long delta);
+}
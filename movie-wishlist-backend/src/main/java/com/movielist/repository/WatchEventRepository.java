@@ -0,0 +1,38 @@
+package com.movielist.repository;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.WatchEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WatchEventRepository extends JpaRepository<WatchEvent, Long> {
+
+    Optional<WatchEvent> findFirstByUserIdAndMovieIdOrderByWatchedAtDescIdDesc(Long userId, Long movieId);
+
+    // User and time of every viewing since the given instant, for loading the windowed leaderboards
+    @Query("SELECT e.userId, e.watchedAt FROM WatchEvent e WHERE e.watchedAt >= :since")
+    List<Object[]> findViewingsSince(Instant since);
+
+    @Query("SELECT e.userId, e.watchedAt FROM WatchEvent e WHERE e.userId IN :userIds AND e.watchedAt >= :since")
+    List<Object[]> findViewingsOfUsersSince(Collection<Long> userIds, Instant since);
+
+    // User, movie and time of every viewing since the given instant, for warming up the feed
+    @Query("SELECT e.userId, e.movieId, e.watchedAt FROM WatchEvent e WHERE e.watchedAt >= :since")
+    List<Object[]> findMovieViewingsSince(Instant since);
+
+    @Query("SELECT e.movieId, MAX(e.bucketMonth) FROM WatchEvent e GROUP BY e.movieId")
+    List<Object[]> findLatestWatchedMonthPerMovie();
+
+    // Watched movies that have no watch event yet, in id order for keyset paging
+    @Query("SELECT m FROM Movie m JOIN FETCH m.user WHERE m.status = 'WATCHED' AND m.id > :afterId " +
+           "AND NOT EXISTS (SELECT e.id FROM WatchEvent e WHERE e.movieId = m.id) ORDER BY m.id")
+    List<Movie> findWatchedMoviesWithoutEvents(Long afterId, Pageable pageable);
+}
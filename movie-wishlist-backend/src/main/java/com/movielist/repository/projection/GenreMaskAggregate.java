@@ -0,0 +1,4 @@
+package com.movielist.repository.projection;
+
+public record GenreMaskAggregate(Long genreMask, Long count, Long runtimeSum, Long ratingSum, Long ratingCount) {
+}
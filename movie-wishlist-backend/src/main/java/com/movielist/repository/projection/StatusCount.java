@@ -0,0 +1,6 @@
+package com.movielist.repository.projection;
+
+import com.movielist.entity.Movie;
+
+public record StatusCount(Movie.Status status, Long count) {
+}
@@ -0,0 +1,4 @@
+package com.movielist.repository.projection;
+
+public record UserBadge(Long userId, String badgeName) {
+}
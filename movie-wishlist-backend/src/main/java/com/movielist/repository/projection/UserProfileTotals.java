@@ -0,0 +1,4 @@
+package com.movielist.repository.projection;
+
+public record UserProfileTotals(Long userId, Long watchedCount, Long runtimeSum, Long followersCount, Long followingCount) {
+}
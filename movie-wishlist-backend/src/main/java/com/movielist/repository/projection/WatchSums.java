@@ -0,0 +1,4 @@
+package com.movielist.repository.projection;
+
+public record WatchSums(Long count, Long totalRuntime, Long ratingSum, Long ratingCount) {
+}
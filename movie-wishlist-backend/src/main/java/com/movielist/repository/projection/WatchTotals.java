@@ -0,0 +1,4 @@
+package com.movielist.repository.projection;
+
+public record WatchTotals(Long count, Long totalRuntime, Double averageRating) {
+}
@@ -2,28 +2,33 @@ package com.movielist.service;
 
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
+import com.movielist.entity.UserStats;
 import com.movielist.exception.ResourceNotFoundException;
 import com.movielist.payload.AnalyticsResponse;
 import com.movielist.payload.GenreStatsResponse;
 import com.movielist.payload.MonthlyStatsResponse;
+import com.movielist.payload.SketchErrorBounds;
 import com.movielist.repository.CommentRepository;
 import com.movielist.repository.FollowRepository;
 import com.movielist.repository.LikeRepository;
 import com.movielist.repository.MovieRepository;
 import com.movielist.repository.UserRepository;
+import com.movielist.repository.projection.GenreMaskAggregate;
+import com.movielist.repository.projection.StatusCount;
+import com.movielist.repository.projection.WatchTotals;
+import com.movielist.util.WatchAggregator;
+import com.movielist.util.WatchSketches;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
 
+    private static final int APPROXIMATE_TOP_GENRES = 10;
+
     @Autowired
     private MovieRepository movieRepository;
 
@@ -39,63 +44,81 @@ public class AnalyticsService {
     @Autowired
     private FollowRepository followRepository;
 
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private WatchEventService watchEventService;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private GenreService genreService;
+
     public AnalyticsResponse getUserAnalytics(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
         
-        List<Movie> allMovies = movieRepository.findByUser(user);
-        List<Movie> watchedMovies = movieRepository.findByUserAndStatus(user, Movie.Status.WATCHED);
-        List<Movie> wishlistMovies = movieRepository.findByUserAndStatus(user, Movie.Status.WISHLIST);
+        UserStats stats = userStatsService.getStats(userId);
         
         AnalyticsResponse response = new AnalyticsResponse();
-        response.setTotalMovies((long) allMovies.size());
-        response.setWatchedMovies((long) watchedMovies.size());
-        response.setWishlistMovies((long) wishlistMovies.size());
-        response.setTotalWatchTime(calculateTotalWatchTime(watchedMovies));
-        response.setAverageRating(calculateAverageRating(watchedMovies));
-        response.setFavoriteGenre(findFavoriteGenre(watchedMovies));
+        response.setTotalMovies(stats.getWatchedCount() + stats.getWishlistCount());
+        response.setWatchedMovies(stats.getWatchedCount());
+        response.setWishlistMovies(stats.getWishlistCount());
+        response.setTotalWatchTime(stats.getRuntimeSum());
+        response.setAverageRating(stats.getRatingCount() > 0 ? (double) stats.getRatingSum() / stats.getRatingCount() : 0.0);
+        response.setFavoriteGenre(stats.getGenreCounts().entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse("None"));
         response.setTotalLikes(likeRepository.countByUser(user));
         response.setTotalComments(commentRepository.countByUser(user));
-        response.setTotalFollowers(followRepository.countFollowersByUserId(userId));
-        response.setTotalFollowing(followRepository.countFollowingByUserId(userId));
+        response.setTotalFollowers(followGraphService.followersCount(userId));
+        response.setTotalFollowing(followGraphService.followingCount(userId));
         
         return response;
     }
 
     public List<GenreStatsResponse> getUserGenreStats(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
         
-        List<Movie> watchedMovies = movieRepository.findByUserAndStatus(user, Movie.Status.WATCHED);
+        // The user's rows come through the (user_id, status) index rather than the fact
+        // store. They are copied into primitive columns once, then aggregated in a single pass
+        List<Object[]> rows = movieRepository.findWatchedFactsByUserId(userId);
+        long[] genreMasks = new long[rows.size()];
+        int[] runtimes = new int[rows.size()];
+        int[] ratings = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            genreMasks[i] = (Long) row[0];
+            runtimes[i] = row[1] != null ? (Integer) row[1] : WatchAggregator.NONE;
+            ratings[i] = row[2] != null ? (Integer) row[2] : WatchAggregator.NONE;
+        }
         
-        return calculateGenreStats(watchedMovies);
+        WatchAggregator aggregate = WatchAggregator.aggregateParallel(genreMasks, runtimes, ratings, rows.size());
+        return toGenreStats(aggregate, genreService.names());
     }
 
-    public List<MonthlyStatsResponse> getUserMonthlyStats(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-        
-        List<Movie> watchedMovies = movieRepository.findByUserAndStatus(user, Movie.Status.WATCHED);
+    /**
+     * Monthly watch totals from the pre-aggregated rollups, optionally limited to a range
+     * of months (inclusive).
+     */
+    public List<MonthlyStatsResponse> getUserMonthlyStats(Long userId, YearMonth from, YearMonth to) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
         
-        return calculateMonthlyStats(watchedMovies);
+        return watchEventService.getMonthlyStats(userId, from, to);
     }
 
     public AnalyticsResponse getGlobalAnalytics() {
-        List<Movie> allMovies = movieRepository.findAll();
-        List<Movie> watchedMovies = allMovies.stream()
-                .filter(movie -> movie.getStatus() == Movie.Status.WATCHED)
-                .collect(Collectors.toList());
-        List<Movie> wishlistMovies = allMovies.stream()
-                .filter(movie -> movie.getStatus() == Movie.Status.WISHLIST)
-                .collect(Collectors.toList());
-        
-        AnalyticsResponse response = new AnalyticsResponse();
-        response.setTotalMovies((long) allMovies.size());
-        response.setWatchedMovies((long) watchedMovies.size());
-        response.setWishlistMovies((long) wishlistMovies.size());
-        response.setTotalWatchTime(calculateTotalWatchTime(watchedMovies));
-        response.setAverageRating(calculateAverageRating(watchedMovies));
-        response.setFavoriteGenre(findFavoriteGenre(watchedMovies));
+        AnalyticsResponse response = movieFactStore.isLoaded() ? globalMovieTotalsFromStore() : globalMovieTotalsFromDatabase();
         response.setTotalLikes((long) likeRepository.count());
         response.setTotalComments((long) commentRepository.count());
         response.setTotalFollowers((long) followRepository.count()); // Same as total following
@@ -105,115 +128,152 @@ public class AnalyticsService {
     }
 
     public List<GenreStatsResponse> getGlobalGenreStats() {
-        List<Movie> watchedMovies = movieRepository.findAll().stream()
-                .filter(movie -> movie.getStatus() == Movie.Status.WATCHED)
-                .collect(Collectors.toList());
+        if (movieFactStore.isLoaded()) {
+            MovieFactStore.ScanResult scan = movieFactStore.scanAll();
+            return toGenreStats(scan.watched(), scan.genreNames());
+        }
         
-        return calculateGenreStats(watchedMovies);
+        return toGenreStats(watchedByGenreFromDatabase(), genreService.names());
     }
 
-    public List<MonthlyStatsResponse> getGlobalMonthlyStats() {
-        List<Movie> watchedMovies = movieRepository.findAll().stream()
-                .filter(movie -> movie.getStatus() == Movie.Status.WATCHED)
-                .collect(Collectors.toList());
+    /**
+     * The approximate mode needs the sketches of the movie fact store, which exist once
+     * it has loaded.
+     */
+    public boolean isApproximateModeAvailable() {
+        return movieFactStore.isLoaded();
+    }
+
+    /**
+     * Global analytics answered from the incrementally maintained sketches in constant
+     * time, with their error bounds. Movie totals are exact; distinct watchers and
+     * percentiles are estimates. Likes, comments and follows are copied from
+     * {@code exact}, normally the cached snapshot.
+     */
+    public AnalyticsResponse getApproximateGlobalAnalytics(AnalyticsResponse exact) {
+        WatchSketches.Estimate estimate = movieFactStore.estimate();
+        WatchAggregator watched = estimate.watched();
+        String[] genreNames = genreService.names();
+        
+        AnalyticsResponse response = new AnalyticsResponse();
+        response.setTotalMovies(watched.count() + estimate.wishlistCount());
+        response.setWatchedMovies(watched.count());
+        response.setWishlistMovies(estimate.wishlistCount());
+        response.setTotalWatchTime(watched.runtimeSum());
+        response.setAverageRating(watched.averageRating());
+        response.setFavoriteGenre(favoriteGenre(watched, genreNames));
+        response.setTotalLikes(exact.getTotalLikes());
+        response.setTotalComments(exact.getTotalComments());
+        response.setTotalFollowers(exact.getTotalFollowers());
+        response.setTotalFollowing(exact.getTotalFollowing());
         
-        return calculateMonthlyStats(watchedMovies);
+        response.setDistinctWatchers(estimate.distinctWatchers());
+        response.setRatingPercentiles(percentiles(estimate.ratingQuantiles()));
+        response.setRuntimePercentiles(percentiles(estimate.runtimeQuantiles()));
+        List<GenreStatsResponse> genres = toGenreStats(watched, genreNames, estimate.distinctWatchersByGenre());
+        response.setTopGenres(new ArrayList<>(genres.subList(0, Math.min(APPROXIMATE_TOP_GENRES, genres.size()))));
+        response.setErrorBounds(new SketchErrorBounds(estimate.distinctRelativeError(), estimate.ratingRankError(),
+                estimate.runtimeRankError(), 0.0, estimate.staleEntries()));
+        return response;
     }
 
-    private Long calculateTotalWatchTime(List<Movie> movies) {
-        return movies.stream()
-                .filter(movie -> movie.getRuntime() != null)
-                .mapToLong(Movie::getRuntime)
-                .sum();
+    public List<GenreStatsResponse> getApproximateGlobalGenreStats() {
+        WatchSketches.Estimate estimate = movieFactStore.estimate();
+        return toGenreStats(estimate.watched(), genreService.names(), estimate.distinctWatchersByGenre());
     }
 
-    private Double calculateAverageRating(List<Movie> movies) {
-        return movies.stream()
-                .filter(movie -> movie.getRating() != null)
-                .mapToInt(Movie::getRating)
-                .average()
-                .orElse(0.0);
+    public List<MonthlyStatsResponse> getGlobalMonthlyStats() {
+        return watchEventService.getMonthlyStats(WatchEventService.GLOBAL_USER_ID, null, null);
     }
 
-    private String findFavoriteGenre(List<Movie> movies) {
-        Map<String, Long> genreCounts = movies.stream()
-                .filter(movie -> movie.getGenre() != null && !movie.getGenre().isEmpty())
-                .collect(Collectors.groupingBy(Movie::getGenre, Collectors.counting()));
+    private AnalyticsResponse globalMovieTotalsFromStore() {
+        MovieFactStore.ScanResult scan = movieFactStore.scanAll();
+        WatchAggregator watched = scan.watched();
         
-        return genreCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("None");
+        AnalyticsResponse response = new AnalyticsResponse();
+        response.setTotalMovies(watched.count() + scan.wishlistCount());
+        response.setWatchedMovies(watched.count());
+        response.setWishlistMovies(scan.wishlistCount());
+        response.setTotalWatchTime(watched.runtimeSum());
+        response.setAverageRating(watched.averageRating());
+        response.setFavoriteGenre(favoriteGenre(watched, scan.genreNames()));
+        return response;
     }
 
-    private List<GenreStatsResponse> calculateGenreStats(List<Movie> movies) {
-        long totalMovies = movies.size();
-        
-        // Group movies by genre and count
-        Map<String, List<Movie>> moviesByGenre = movies.stream()
-                .filter(movie -> movie.getGenre() != null && !movie.getGenre().isEmpty())
-                .collect(Collectors.groupingBy(Movie::getGenre));
-        
-        List<GenreStatsResponse> genreStats = new ArrayList<>();
-        
-        for (Map.Entry<String, List<Movie>> entry : moviesByGenre.entrySet()) {
-            String genre = entry.getKey();
-            List<Movie> genreMovies = entry.getValue();
-            long count = genreMovies.size();
-            double percentage = totalMovies > 0 ? (double) count / totalMovies * 100 : 0;
-            double averageRating = genreMovies.stream()
-                    .filter(movie -> movie.getRating() != null)
-                    .mapToInt(Movie::getRating)
-                    .average()
-                    .orElse(0.0);
-            
-            genreStats.add(new GenreStatsResponse(genre, count, percentage, averageRating));
+    private AnalyticsResponse globalMovieTotalsFromDatabase() {
+        long watched = 0;
+        long wishlist = 0;
+        for (StatusCount statusCount : movieRepository.countGroupedByStatus()) {
+            if (statusCount.status() == Movie.Status.WATCHED) {
+                watched = statusCount.count();
+            } else if (statusCount.status() == Movie.Status.WISHLIST) {
+                wishlist = statusCount.count();
+            }
         }
+        WatchTotals totals = movieRepository.aggregateWatched();
         
-        // Sort by count in descending order
-        genreStats.sort((g1, g2) -> g2.getCount().compareTo(g1.getCount()));
-        
-        return genreStats;
+        AnalyticsResponse response = new AnalyticsResponse();
+        response.setTotalMovies(watched + wishlist);
+        response.setWatchedMovies(watched);
+        response.setWishlistMovies(wishlist);
+        response.setTotalWatchTime(totals.totalRuntime());
+        response.setAverageRating(totals.averageRating() != null ? totals.averageRating() : 0.0);
+        response.setFavoriteGenre(favoriteGenre(watchedByGenreFromDatabase(), genreService.names()));
+        return response;
     }
 
-    private List<MonthlyStatsResponse> calculateMonthlyStats(List<Movie> movies) {
-        // Group movies by month (YYYY-MM)
-        Map<String, List<Movie>> moviesByMonth = new HashMap<>();
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (Movie movie : movies) {
-            // Assuming the movie has a timestamp for when it was marked as watched
-            // If not, we could use the movie's creation date or last updated date
-            Instant timestamp = movie.getUpdatedAt(); // Assuming there's an updatedAt field
-            if (timestamp == null) {
-                timestamp = Instant.now(); // Fallback to current time if no timestamp
-            }
-            
-            LocalDate date = timestamp.atZone(ZoneId.systemDefault()).toLocalDate();
-            String monthKey = date.format(formatter);
-            
-            if (!moviesByMonth.containsKey(monthKey)) {
-                moviesByMonth.put(monthKey, new ArrayList<>());
+    // Groups by genre mask, so the database returns one row per genre combination
+    private WatchAggregator watchedByGenreFromDatabase() {
+        WatchAggregator aggregate = new WatchAggregator();
+        for (GenreMaskAggregate group : movieRepository.aggregateWatchedByGenreMask()) {
+            aggregate.addGroup(group.genreMask(), group.count(), group.runtimeSum(), group.ratingSum(), group.ratingCount());
+        }
+        return aggregate;
+    }
+
+    private String favoriteGenre(WatchAggregator aggregate, String[] genreNames) {
+        String favoriteGenre = "None";
+        long favoriteCount = 0;
+        for (int genre = 0; genre < genreNames.length; genre++) {
+            if (genreNames[genre] != null && aggregate.count(genre) > favoriteCount) {
+                favoriteCount = aggregate.count(genre);
+                favoriteGenre = genreNames[genre];
             }
-            moviesByMonth.get(monthKey).add(movie);
         }
+        return favoriteGenre;
+    }
+
+    private Map<String, Double> percentiles(double[] values) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            String key = "p" + Math.round(WatchSketches.QUANTILES[i] * 100);
+            percentiles.put(key, Double.isNaN(values[i]) ? null : values[i]);
+        }
+        return percentiles;
+    }
+
+    private List<GenreStatsResponse> toGenreStats(WatchAggregator aggregate, String[] genreNames) {
+        return toGenreStats(aggregate, genreNames, null);
+    }
+
+    private List<GenreStatsResponse> toGenreStats(WatchAggregator aggregate, String[] genreNames, long[] distinctUsers) {
+        long totalMovies = aggregate.count();
         
-        List<MonthlyStatsResponse> monthlyStats = new ArrayList<>();
-        
-        for (Map.Entry<String, List<Movie>> entry : moviesByMonth.entrySet()) {
-            String month = entry.getKey();
-            List<Movie> monthMovies = entry.getValue();
-            long moviesWatched = monthMovies.size();
-            long watchTime = calculateTotalWatchTime(monthMovies);
-            double averageRating = calculateAverageRating(monthMovies);
-            
-            monthlyStats.add(new MonthlyStatsResponse(month, moviesWatched, watchTime, averageRating));
+        List<GenreStatsResponse> genreStats = new ArrayList<>();
+        for (int genre = 0; genre < genreNames.length; genre++) {
+            long count = aggregate.count(genre);
+            if (count == 0 || genreNames[genre] == null) {
+                continue;
+            }
+            // A movie with several genres counts towards each, so percentages can sum past 100
+            double percentage = totalMovies > 0 ? (double) count / totalMovies * 100 : 0;
+            genreStats.add(new GenreStatsResponse(genreNames[genre], count, percentage, aggregate.averageRating(genre),
+                    distinctUsers != null ? distinctUsers[genre] : null));
         }
         
-        // Sort by month in ascending order
-        monthlyStats.sort(Comparator.comparing(MonthlyStatsResponse::getMonth));
+        // Sort by count in descending order
+        genreStats.sort((g1, g2) -> g2.getCount().compareTo(g1.getCount()));
         
-        return monthlyStats;
+        return genreStats;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,318 @@
+package com.movielist.service;
+
+import com.movielist.entity.Badge;
+import com.movielist.exception.ApiException;
+import com.movielist.repository.BadgeRepository;
+import com.movielist.repository.projection.UserBadge;
+import com.movielist.service.BadgeService.BadgeRule;
+import com.movielist.util.LongIntHashMap;
+import com.movielist.util.SequenceBlockAllocator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Awards every badge rule to the users who already qualify, for rules added after their
+ * users' last watch. Runs in the background and reports its progress:
+ *
+ * <ol>
+ *   <li>one grouped query over the watched movies gives every user's totals;</li>
+ *   <li>the earned badges are streamed once from the badges table into one bitmask per user;</li>
+ *   <li>users are split into fork-join chunks that each work out the missing badges and
+ *   insert them in JDBC batches.</li>
+ * </ol>
+ *
+ * <p>Each chunk claims its badges from {@link BadgeService} before inserting, so a badge
+ * the live evaluation awards meanwhile is not inserted twice. Claims only cover users the
+ * evaluation has loaded; badges it stores for other users after the earned badges were read
+ * are skipped by the insert and counted in badgesSkipped.
+ */
+@Service
+public class BadgeBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BadgeBackfillService.class);
+
+    private static final String TOTALS_SQL =
+            "SELECT user_id, COUNT(*), COALESCE(SUM(runtime), 0) FROM movies WHERE status = 'WATCHED' AND user_id IS NOT NULL GROUP BY user_id";
+
+    // Skips badges the live evaluation stored meanwhile for users it had not loaded, which
+    // claim() cannot see; the unique key on user and badge name is the only conflict besides
+    // the id, which comes from the badges_seq blocks
+    private static final String INSERT_SQL =
+            "INSERT INTO badges (id, user_id, badge_name, earned_at) VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BadgeRepository badgeRepository;
+
+    @Autowired
+    private BadgeService badgeService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${movielist.badges.backfill-parallelism:4}")
+    private int parallelism;
+
+    @Value("${movielist.badges.backfill-chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${movielist.badges.backfill-batch-size:1000}")
+    private int batchSize;
+
+    private SequenceBlockAllocator badgeIds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "badge-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String state = "idle";
+    private volatile Instant startedAt;
+    private volatile long finishedMillis;
+    private volatile String error;
+    private volatile int usersTotal;
+    private final AtomicLong usersProcessed = new AtomicLong();
+    private final AtomicLong badgesInserted = new AtomicLong();
+    private final AtomicLong badgesSkipped = new AtomicLong();
+
+    /**
+     * Starts a backfill in the background.
+     *
+     * @throws ApiException with 409 if one is already running
+     */
+    public Map<String, Object> start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ApiException(HttpStatus.CONFLICT, "A badge backfill is already running");
+        }
+        startedAt = Instant.now();
+        finishedMillis = 0;
+        error = null;
+        usersTotal = 0;
+        usersProcessed.set(0);
+        badgesInserted.set(0);
+        badgesSkipped.set(0);
+        state = "loading";
+        runner.execute(this::run);
+        return getProgress();
+    }
+
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state);
+        progress.put("startedAt", startedAt);
+        long elapsed = startedAt == null ? 0
+                : finishedMillis > 0 ? finishedMillis : System.currentTimeMillis() - startedAt.toEpochMilli();
+        long processed = usersProcessed.get();
+        progress.put("elapsedMs", elapsed);
+        progress.put("usersTotal", usersTotal);
+        progress.put("usersProcessed", processed);
+        progress.put("badgesInserted", badgesInserted.get());
+        progress.put("badgesSkipped", badgesSkipped.get());
+        progress.put("usersPerSecond", elapsed > 0 ? processed * 1000 / elapsed : 0);
+        progress.put("error", error);
+        return progress;
+    }
+
+    @PostConstruct
+    void initBadgeIds() {
+        badgeIds = new SequenceBlockAllocator(jdbcTemplate, Badge.class);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            Totals totals = loadTotals();
+            usersTotal = totals.size;
+            LongIntHashMap stored = loadEarned();
+            logger.info("Badge backfill loaded totals of {} users and the badges of {} in {} ms",
+                    totals.size, stored.size(), System.currentTimeMillis() - startedAt.toEpochMilli());
+
+            state = "inserting";
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ChunkTask(totals, stored, 0, totals.size));
+            } finally {
+                pool.shutdown();
+            }
+            state = "done";
+            logger.info("Badge backfill inserted {} badges for {} users in {} ms",
+                    badgesInserted.get(), totals.size, System.currentTimeMillis() - startedAt.toEpochMilli());
+        } catch (RuntimeException e) {
+            state = "failed";
+            error = e.getMessage();
+            logger.error("Badge backfill failed", e);
+        } finally {
+            finishedMillis = Math.max(1, System.currentTimeMillis() - startedAt.toEpochMilli());
+            running.set(false);
+        }
+    }
+
+    private Totals loadTotals() {
+        Totals totals = new Totals();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(TOTALS_SQL);
+            statement.setFetchSize(10000);
+            return statement;
+        }, (RowCallbackHandler) row -> totals.add(row.getLong(1), row.getLong(2), row.getLong(3)));
+        return totals;
+    }
+
+    private LongIntHashMap loadEarned() {
+        LongIntHashMap masks = new LongIntHashMap();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<UserBadge> badges = badgeRepository.streamAllNames()) {
+                badges.forEach(badge -> {
+                    int bit = BadgeService.ruleBit(badge.badgeName());
+                    if (bit >= 0) {
+                        masks.put(badge.userId(), masks.get(badge.userId(), 0) | (1 << bit));
+                    }
+                });
+            }
+        });
+        return masks;
+    }
+
+    // Works out and inserts the missing badges of users from to to - 1
+    private void backfill(Totals totals, LongIntHashMap stored, int from, int to) {
+        List<Object[]> rows = new ArrayList<>();
+        List<Long> claimedUsers = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = from; i < to; i++) {
+            long userId = totals.userIds[i];
+            int wanted = 0;
+            for (int bit = 0; bit < BadgeService.RULES.size(); bit++) {
+                BadgeRule rule = BadgeService.RULES.get(bit);
+                if (totals.metric(rule.metric(), i) >= rule.threshold()) {
+                    wanted |= 1 << bit;
+                }
+            }
+            // Only read once loaded, so the chunks share it without locking
+            int storedMask = stored.get(userId, 0);
+            if ((wanted & ~storedMask) == 0) {
+                continue;
+            }
+            int claimed = badgeService.claim(userId, storedMask, wanted);
+            if (claimed == 0) {
+                continue;
+            }
+            claimedUsers.add(userId);
+            for (int remaining = claimed; remaining != 0; remaining &= remaining - 1) {
+                int bit = Integer.numberOfTrailingZeros(remaining);
+                rows.add(new Object[]{null, userId, BadgeService.RULES.get(bit).name(), now});
+            }
+        }
+        int inserted;
+        try {
+            inserted = insert(rows);
+        } catch (RuntimeException e) {
+            badgeService.forget(claimedUsers);
+            throw e;
+        }
+        badgesInserted.addAndGet(inserted);
+        badgesSkipped.addAndGet(rows.size() - inserted);
+        usersProcessed.addAndGet(to - from);
+    }
+
+    // Returns how many rows were inserted rather than skipped as already earned
+    private int insert(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            row[0] = badgeIds.next();
+        }
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            for (int count : jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(from, Math.min(from + batchSize, rows.size())))) {
+                // Drivers that rewrite batches report success without a row count
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted++;
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private final Totals totals;
+        private final LongIntHashMap stored;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Totals totals, LongIntHashMap stored, int from, int to) {
+            this.totals = totals;
+            this.stored = stored;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                backfill(totals, stored, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(totals, stored, from, mid), new ChunkTask(totals, stored, mid, to));
+        }
+    }
+
+    // Per-user totals in parallel primitive columns, indexed by BadgeService.Metric ordinal
+    private static final class Totals {
+        private long[] userIds = new long[1024];
+        private final long[][] metrics = new long[BadgeService.Metric.values().length][1024];
+        private int size;
+
+        void add(long userId, long watchedCount, long watchMinutes) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                for (int m = 0; m < metrics.length; m++) {
+                    metrics[m] = Arrays.copyOf(metrics[m], size * 2);
+                }
+            }
+            userIds[size] = userId;
+            metrics[BadgeService.Metric.WATCHED_COUNT.ordinal()][size] = watchedCount;
+            metrics[BadgeService.Metric.WATCH_MINUTES.ordinal()][size] = watchMinutes;
+            size++;
+        }
+
+        long metric(BadgeService.Metric metric, int index) {
+            return metrics[metric.ordinal()][index];
+        }
+    }
+}
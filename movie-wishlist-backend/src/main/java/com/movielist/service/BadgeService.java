@@ -1,75 +1,269 @@
 package com.movielist.service;
 
 import com.movielist.entity.Badge;
-import com.movielist.entity.Movie;
 import com.movielist.entity.User;
+import com.movielist.event.DomainEvent;
+import com.movielist.event.DomainEvent.MovieWatched;
+import com.movielist.event.DomainEventConsumer;
 import com.movielist.repository.BadgeRepository;
-import com.movielist.repository.MovieRepository;
+import com.movielist.repository.projection.UserBadge;
+import com.movielist.util.LongIntHashMap;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Awards badges from a table of rules as a consumer of {@link MovieWatched} events, which
+ * carry the user's totals after the viewing. Each batch of events is evaluated at once, so
+ * several watches by one user inside a batch cost one evaluation. Badges a user already
+ * has are kept in memory as a bitmask with one bit per rule, so an evaluation that awards
+ * nothing runs no queries. The earned badges of users seen for the first time are loaded
+ * with one query per batch.
+ */
 @Service
-public class BadgeService {
+public class BadgeService implements DomainEventConsumer {
+
+    // Keeps the IN lists of the earned-badge query well under bind-parameter limits
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    // Each retry first reads back the badges another writer stored, so more than a couple
+    // means something keeps inserting the same badges
+    private static final int MAX_AWARD_ATTEMPTS = 3;
+
+    /**
+     * A user total that badge rules compare against.
+     */
+    public enum Metric {
+        WATCHED_COUNT, WATCH_MINUTES
+    }
+
+    /**
+     * Awards the named badge once the user's metric reaches the threshold.
+     */
+    public record BadgeRule(String name, Metric metric, long threshold) {
+    }
+
+    /**
+     * Every badge there is. Add new rules at the end; earned badges are never taken away.
+     */
+    public static final List<BadgeRule> RULES = List.of(
+            new BadgeRule("First Movie Watched", Metric.WATCHED_COUNT, 1),
+            new BadgeRule("5 Movies Watched", Metric.WATCHED_COUNT, 5),
+            new BadgeRule("10 Movies Watched", Metric.WATCHED_COUNT, 10),
+            new BadgeRule("25 Movies Watched", Metric.WATCHED_COUNT, 25),
+            new BadgeRule("50 Movies Watched", Metric.WATCHED_COUNT, 50),
+            new BadgeRule("100 Movies Watched", Metric.WATCHED_COUNT, 100),
+            new BadgeRule("24 Hours Watched", Metric.WATCH_MINUTES, 1440),
+            new BadgeRule("100 Hours Watched", Metric.WATCH_MINUTES, 6000));
+
+    // One bit of an int per rule, leaving the sign bit clear so -1 can mean "not loaded"
+    private static final int MAX_RULES = 31;
+
+    private static final Map<String, Integer> RULE_BITS = new HashMap<>();
+
+    static {
+        if (RULES.size() > MAX_RULES) {
+            throw new IllegalStateException("At most " + MAX_RULES + " badge rules are supported");
+        }
+        for (int i = 0; i < RULES.size(); i++) {
+            RULE_BITS.put(RULES.get(i).name(), i);
+        }
+    }
 
     @Autowired
     private BadgeRepository badgeRepository;
 
     @Autowired
-    private MovieRepository movieRepository;
-
-    public void checkAndAwardBadges(User user) {
-        // Count watched movies
-        Long watchedMoviesCount = movieRepository.countWatchedMoviesByUserId(user.getId());
-        
-        // First Movie Watched Badge
-        if (watchedMoviesCount >= 1 && !badgeRepository.existsByUserAndBadgeName(user, "First Movie Watched")) {
-            awardBadge(user, "First Movie Watched");
-        }
-        
-        // 5 Movies Watched Badge
-        if (watchedMoviesCount >= 5 && !badgeRepository.existsByUserAndBadgeName(user, "5 Movies Watched")) {
-            awardBadge(user, "5 Movies Watched");
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Bitmask of earned rules per user; guarded by this
+    private final LongIntHashMap earned = new LongIntHashMap();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder awarded = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile long lastBatchMillis;
+
+    @Override
+    public String name() {
+        return "badges";
+    }
+
+    @Override
+    public Set<Class<? extends DomainEvent>> eventTypes() {
+        return Set.of(MovieWatched.class);
+    }
+
+    /**
+     * Evaluates the users of a batch of watches against the highest totals seen for each.
+     * Totals only grow between watches and awarded badges are remembered, so a replayed
+     * event awards nothing twice.
+     */
+    @Override
+    public void handle(List<DomainEvent> events) {
+        Map<Long, long[]> batch = new HashMap<>();
+        for (DomainEvent event : events) {
+            MovieWatched watched = (MovieWatched) event;
+            long[] metrics = new long[Metric.values().length];
+            metrics[Metric.WATCHED_COUNT.ordinal()] = watched.watchedCount();
+            metrics[Metric.WATCH_MINUTES.ordinal()] = watched.watchMinutes();
+            batch.merge(watched.userId(), metrics, BadgeService::max);
         }
-        
-        // 10 Movies Watched Badge
-        if (watchedMoviesCount >= 10 && !badgeRepository.existsByUserAndBadgeName(user, "10 Movies Watched")) {
-            awardBadge(user, "10 Movies Watched");
+        requests.add(events.size());
+        coalesced.add(events.size() - batch.size());
+        evaluate(batch);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rules", RULES.size());
+        stats.put("requests", requests.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("evaluated", evaluated.sum());
+        stats.put("awarded", awarded.sum());
+        stats.put("conflicts", conflicts.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastBatchMs", lastBatchMillis);
+        synchronized (this) {
+            stats.put("knownUsers", earned.size());
         }
-        
-        // 25 Movies Watched Badge
-        if (watchedMoviesCount >= 25 && !badgeRepository.existsByUserAndBadgeName(user, "25 Movies Watched")) {
-            awardBadge(user, "25 Movies Watched");
+        return stats;
+    }
+
+    /**
+     * Bit of the named rule in an earned-badge mask, or -1 for a name no rule has.
+     */
+    public static int ruleBit(String badgeName) {
+        return RULE_BITS.getOrDefault(badgeName, -1);
+    }
+
+    /**
+     * Marks rules as earned for a job that inserts the badges itself, so {@link #handle} does
+     * not award them a second time. A user not loaded yet takes storedMask, the badges the
+     * job read from the table, as what they had already earned.
+     *
+     * @return the bits of wanted that were not earned yet and are now the caller's to insert
+     */
+    public synchronized int claim(long userId, int storedMask, int wanted) {
+        int mask = earned.get(userId, -1);
+        if (mask < 0) {
+            mask = storedMask;
         }
-        
-        // 50 Movies Watched Badge
-        if (watchedMoviesCount >= 50 && !badgeRepository.existsByUserAndBadgeName(user, "50 Movies Watched")) {
-            awardBadge(user, "50 Movies Watched");
+        int claimed = wanted & ~mask;
+        earned.put(userId, mask | claimed);
+        return claimed;
+    }
+
+    /**
+     * Drops what is known about the users' earned badges, so it is read again on their
+     * next evaluation. For jobs whose inserts failed after {@link #claim}.
+     */
+    public synchronized void forget(Iterable<Long> userIds) {
+        for (Long userId : userIds) {
+            earned.remove(userId);
         }
-        
-        // 100 Movies Watched Badge
-        if (watchedMoviesCount >= 100 && !badgeRepository.existsByUserAndBadgeName(user, "100 Movies Watched")) {
-            awardBadge(user, "100 Movies Watched");
+    }
+
+    private synchronized void evaluate(Map<Long, long[]> batch) {
+        long started = System.nanoTime();
+        loadEarned(batch.keySet().stream().filter(userId -> earned.get(userId, -1) < 0).toList());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                award(batch);
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // Another writer stored some of these badges first (the unique key on user and
+                // badge name); the batch rolled back, so read them back and award the rest
+                if (attempt == MAX_AWARD_ATTEMPTS) {
+                    throw e;
+                }
+                conflicts.increment();
+                loadEarned(new ArrayList<>(batch.keySet()));
+            }
         }
-        
-        // Check total watch time
-        Long totalWatchTime = movieRepository.calculateTotalWatchTimeByUserId(user.getId());
-        if (totalWatchTime != null) {
-            // 24 Hours Watched Badge (1440 minutes)
-            if (totalWatchTime >= 1440 && !badgeRepository.existsByUserAndBadgeName(user, "24 Hours Watched")) {
-                awardBadge(user, "24 Hours Watched");
+        evaluated.add(batch.size());
+        batches.increment();
+        lastBatchMillis = (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private void award(Map<Long, long[]> batch) {
+        List<UserBadge> newBadges = new ArrayList<>();
+        Map<Long, Integer> newMasks = new HashMap<>();
+        batch.forEach((userId, metrics) -> {
+            int mask = earned.get(userId, 0);
+            int updated = mask;
+            for (int i = 0; i < RULES.size(); i++) {
+                BadgeRule rule = RULES.get(i);
+                if ((updated & (1 << i)) == 0 && metrics[rule.metric().ordinal()] >= rule.threshold()) {
+                    updated |= 1 << i;
+                    newBadges.add(new UserBadge(userId, rule.name()));
+                }
             }
-            
-            // 100 Hours Watched Badge (6000 minutes)
-            if (totalWatchTime >= 6000 && !badgeRepository.existsByUserAndBadgeName(user, "100 Hours Watched")) {
-                awardBadge(user, "100 Hours Watched");
+            if (updated != mask) {
+                newMasks.put(userId, updated);
             }
+        });
+
+        if (!newBadges.isEmpty()) {
+            // One transaction and JDBC batch for the whole batch of events; flushed inside it,
+            // so a duplicate badge fails here rather than at commit
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    badgeRepository.saveAllAndFlush(newBadges.stream().map(this::newBadge).toList()));
+            newMasks.forEach(earned::put);
+            awarded.add(newBadges.size());
         }
     }
-    
-    private void awardBadge(User user, String badgeName) {
+
+    // Reads the users' earned badges from the table into the bitmasks, keeping the bits of
+    // badges already known or claimed
+    private void loadEarned(List<Long> userIds) {
+        for (int from = 0; from < userIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + LOAD_CHUNK_SIZE, userIds.size()));
+            Map<Long, Integer> masks = new HashMap<>();
+            chunk.forEach(userId -> masks.put(userId, 0));
+            for (UserBadge badge : badgeRepository.findNamesByUserIds(chunk)) {
+                Integer bit = RULE_BITS.get(badge.badgeName());
+                if (bit != null) {
+                    masks.merge(badge.userId(), 1 << bit, (a, b) -> a | b);
+                }
+            }
+            masks.forEach((userId, mask) -> {
+                int known = earned.get(userId, -1);
+                earned.put(userId, known < 0 ? mask : known | mask);
+            });
+        }
+    }
+
+    private Badge newBadge(UserBadge earnedBadge) {
         Badge badge = new Badge();
-        badge.setUser(user);
-        badge.setBadgeName(badgeName);
-        badgeRepository.save(badge);
+        badge.setUser(entityManager.getReference(User.class, earnedBadge.userId()));
+        badge.setBadgeName(earnedBadge.badgeName());
+        return badge;
+    }
+
+    private static long[] max(long[] a, long[] b) {
+        long[] merged = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            merged[i] = Math.max(a[i], b[i]);
+        }
+        return merged;
     }
-}
\ No newline at end of file
+}
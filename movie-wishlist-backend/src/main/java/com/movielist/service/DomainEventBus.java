@@ -0,0 +1,531 @@
+package com.movielist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.movielist.entity.OutboxEvent;
+import com.movielist.event.DomainEvent;
+import com.movielist.event.DomainEventConsumer;
+import com.movielist.repository.OutboxEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers {@link DomainEvent}s to every {@link DomainEventConsumer} bean, off the
+ * request thread:
+ *
+ * <ol>
+ *   <li>{@link #publish} stores the event in the event_outbox table in the caller's
+ *   transaction, when a durable consumer wants it;</li>
+ *   <li>once that transaction commits, the event goes onto the bounded queue of each
+ *   consumer that wants it. A full queue makes the publisher wait up to
+ *   {@code movielist.events.offer-timeout-ms}; an event that still does not fit is offered
+ *   again every {@code movielist.events.redeliver-interval-ms};</li>
+ *   <li>each consumer's worker thread takes up to {@code movielist.events.batch-size}
+ *   events at a time, waiting up to {@code movielist.events.batch-wait-ms} to fill a batch.
+ *   When the consumer throws, the batch's events are retried one at a time; each one that
+ *   fails again is offered again on the redelivery interval, alone, and is logged and
+ *   dropped for that consumer after {@code movielist.events.max-attempts} failures;</li>
+ *   <li>outbox rows of events every consumer has handled are deleted in bulk on an
+ *   interval. Rows left after a restart are delivered again to the durable consumers.</li>
+ * </ol>
+ *
+ * <p>Delivery is at least once and in commit order per consumer, except for events
+ * retried or replayed, which arrive late.
+ */
+@Service
+public class DomainEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventBus.class);
+
+    // One bit of an int per consumer in a delivery's pending mask
+    private static final int MAX_CONSUMERS = 31;
+
+    private static final int REPLAY_PAGE_SIZE = 1000;
+
+    // Keeps the IN lists of the outbox deletes well under bind-parameter limits
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<DomainEventConsumer> consumers;
+
+    @Value("${movielist.events.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${movielist.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${movielist.events.batch-wait-ms:100}")
+    private long batchWaitMillis;
+
+    @Value("${movielist.events.offer-timeout-ms:50}")
+    private long offerTimeoutMillis;
+
+    @Value("${movielist.events.max-attempts:5}")
+    private int maxAttempts;
+
+    private Worker[] workers;
+    // Bits of the consumers that want each event type, and of those that are durable
+    private final Map<Class<? extends DomainEvent>, Integer> subscribers = new HashMap<>();
+    private int durableMask;
+    private final Map<String, Class<? extends DomainEvent>> typesByName = new HashMap<>();
+
+    // Deliveries with an outbox row, by outbox id, until the row is deleted
+    private final Map<Long, Delivery> unfinished = new ConcurrentHashMap<>();
+    // Outbox ids handled by every consumer, waiting to be deleted
+    private final Queue<Long> finished = new ConcurrentLinkedQueue<>();
+    // Deliveries some consumer still has to be offered again
+    private final Queue<Delivery> stalled = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder outboxWrites = new LongAdder();
+    private final LongAdder outboxDeletes = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+
+    @PostConstruct
+    public void startWorkers() {
+        if (consumers.size() > MAX_CONSUMERS) {
+            throw new IllegalStateException("At most " + MAX_CONSUMERS + " event consumers are supported");
+        }
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            typesByName.put(type.getSimpleName(), type.asSubclass(DomainEvent.class));
+        }
+        workers = new Worker[consumers.size()];
+        for (int i = 0; i < workers.length; i++) {
+            DomainEventConsumer consumer = consumers.get(i);
+            workers[i] = new Worker(consumer, i);
+            for (Class<? extends DomainEvent> type : consumer.eventTypes()) {
+                subscribers.merge(type, 1 << i, (a, b) -> a | b);
+            }
+            if (consumer.durable()) {
+                durableMask |= 1 << i;
+            }
+            workers[i].thread.start();
+        }
+    }
+
+    /**
+     * Publishes the event once the caller's transaction commits. Must run in the
+     * transaction that made the change, which also writes the event's outbox row.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(DomainEvent event) {
+        published.increment();
+        int mask = subscribers.getOrDefault(event.getClass(), 0);
+        if (mask == 0) {
+            return;
+        }
+        Long outboxId = (mask & durableMask) != 0 ? outboxEventRepository.save(toRow(event)).getId() : null;
+        if (outboxId != null) {
+            outboxWrites.increment();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatch(new Delivery(outboxId, event, mask), offerTimeoutMillis);
+            }
+        });
+    }
+
+    /**
+     * Delivers the events left in the outbox by the previous run to the durable consumers,
+     * waiting for room in their queues.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOutbox() {
+        long started = System.nanoTime();
+        long afterId = 0;
+        int count = 0;
+        while (true) {
+            List<OutboxEvent> page = outboxEventRepository.findAfter(afterId, PageRequest.of(0, REPLAY_PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (OutboxEvent row : page) {
+                DomainEvent event = fromRow(row);
+                int mask = event != null ? subscribers.getOrDefault(event.getClass(), 0) & durableMask : 0;
+                if (mask == 0) {
+                    // No consumer wants it any more
+                    finished.add(row.getId());
+                    continue;
+                }
+                dispatch(new Delivery(row.getId(), event, mask), Long.MAX_VALUE);
+                count++;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        replayed.add(count);
+        if (count > 0) {
+            logger.info("Replayed {} undelivered events from the outbox in {} ms", count, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Offers stalled deliveries to their consumers again, without waiting for room.
+     */
+    @Scheduled(fixedDelayString = "${movielist.events.redeliver-interval-ms:5000}")
+    public void redeliverStalled() {
+        for (int left = stalled.size(); left > 0; left--) {
+            Delivery delivery = stalled.poll();
+            if (delivery == null) {
+                break;
+            }
+            int mask = delivery.stalledMask.getAndSet(0);
+            for (int bit = 0; mask != 0; bit++, mask >>>= 1) {
+                if ((mask & 1) != 0 && offer(workers[bit], delivery, 0)) {
+                    redelivered.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the outbox rows of events every consumer has handled.
+     */
+    @Scheduled(fixedDelayString = "${movielist.events.outbox-flush-interval-ms:1000}")
+    public synchronized void flushFinished() {
+        List<Long> ids = new ArrayList<>();
+        for (Long id = finished.poll(); id != null; id = finished.poll()) {
+            ids.add(id);
+        }
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ids.size()));
+            try {
+                outboxEventRepository.deleteAllByIdInBatch(chunk);
+                chunk.forEach(unfinished::remove);
+                outboxDeletes.add(chunk.size());
+            } catch (RuntimeException e) {
+                // Retried on the next flush; a restart before then only replays them
+                finished.addAll(ids.subList(from, ids.size()));
+                logger.error("Failed to delete {} delivered events from the outbox: {}", ids.size() - from, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            // Give the workers a chance to empty their queues; the rest is replayed on startup
+            for (Worker worker : workers) {
+                worker.thread.join(5000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushFinished();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.sum());
+        stats.put("outboxWrites", outboxWrites.sum());
+        stats.put("outboxDeletes", outboxDeletes.sum());
+        stats.put("outboxUnfinished", unfinished.size());
+        stats.put("replayed", replayed.sum());
+        stats.put("stalled", stalled.size());
+        stats.put("redelivered", redelivered.sum());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("batchSize", batchSize);
+        stats.put("batchWaitMs", batchWaitMillis);
+        stats.put("maxAttempts", maxAttempts);
+        List<Map<String, Object>> perConsumer = new ArrayList<>();
+        for (Worker worker : workers) {
+            perConsumer.add(worker.getStats());
+        }
+        stats.put("consumers", perConsumer);
+        return stats;
+    }
+
+    private void dispatch(Delivery delivery, long timeoutMillis) {
+        // The startup replay and the publishing transaction's commit can race for the same row
+        if (delivery.outboxId != null && unfinished.putIfAbsent(delivery.outboxId, delivery) != null) {
+            return;
+        }
+        int mask = delivery.pending.get();
+        for (int bit = 0; mask != 0; bit++, mask >>>= 1) {
+            if ((mask & 1) != 0) {
+                offer(workers[bit], delivery, timeoutMillis);
+            }
+        }
+    }
+
+    private boolean offer(Worker worker, Delivery delivery, long timeoutMillis) {
+        boolean queued;
+        try {
+            queued = worker.queue.offer(delivery, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            worker.overflows.increment();
+            stall(delivery, worker.bit);
+        }
+        return queued;
+    }
+
+    private void stall(Delivery delivery, int bit) {
+        // Queued once however many consumers it stalled for
+        if (delivery.stalledMask.getAndUpdate(mask -> mask | 1 << bit) == 0) {
+            stalled.add(delivery);
+        }
+    }
+
+    private OutboxEvent toRow(DomainEvent event) {
+        try {
+            return new OutboxEvent(null, event.getClass().getSimpleName(), objectMapper.writeValueAsString(event), Instant.now());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + event, e);
+        }
+    }
+
+    // The event of an outbox row, or null if it can no longer be read
+    private DomainEvent fromRow(OutboxEvent row) {
+        Class<? extends DomainEvent> type = typesByName.get(row.getEventType());
+        if (type == null) {
+            logger.warn("Dropping outbox event {} of unknown type {}", row.getId(), row.getEventType());
+            return null;
+        }
+        try {
+            return objectMapper.readValue(row.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            logger.warn("Dropping unreadable outbox event {}: {}", row.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private final class Delivery {
+        private final Long outboxId;
+        private final DomainEvent event;
+        private final long queuedAtMillis = System.currentTimeMillis();
+        // Consumers that have not handled the event yet
+        private final AtomicInteger pending;
+        // Consumers it is waiting to be offered to again
+        private final AtomicInteger stalledMask = new AtomicInteger();
+
+        private Delivery(Long outboxId, DomainEvent event, int consumers) {
+            this.outboxId = outboxId;
+            this.event = event;
+            this.pending = new AtomicInteger(consumers);
+        }
+
+        private void handled(int bit) {
+            if (pending.updateAndGet(mask -> mask & ~(1 << bit)) == 0 && outboxId != null) {
+                finished.add(outboxId);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final DomainEventConsumer consumer;
+        private final int bit;
+        private final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder overflows = new LongAdder();
+        // Failed attempts of deliveries that are waiting to be retried; only used by the worker thread
+        private final Map<Delivery, Integer> attempts = new HashMap<>();
+        private volatile long busyNanos;
+        private volatile long lastLagMillis;
+        private volatile long maxLagMillis;
+        // Events handled per second over the last minute; only written by the worker thread
+        private final long[] rateSeconds = new long[RATE_WINDOW_SECONDS];
+        private final long[] rateCounts = new long[RATE_WINDOW_SECONDS];
+
+        private Worker(DomainEventConsumer consumer, int bit) {
+            this.consumer = consumer;
+            this.bit = bit;
+            this.thread = new Thread(this, "events-" + consumer.name());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Delivery> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Delivery first = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long wait = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || wait <= 0 || !running) {
+                            break;
+                        }
+                        Delivery next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                handle(batch);
+                batch.clear();
+            }
+        }
+
+        private void handle(List<Delivery> batch) {
+            long started = System.nanoTime();
+            List<Delivery> fresh = batch;
+            List<Delivery> retried = List.of();
+            if (!attempts.isEmpty()) {
+                // Events that failed before go alone, so they cannot fail a batch again
+                fresh = new ArrayList<>(batch.size());
+                retried = new ArrayList<>();
+                for (Delivery delivery : batch) {
+                    (attempts.containsKey(delivery) ? retried : fresh).add(delivery);
+                }
+            }
+            int done = handleBatch(fresh) + handleEach(retried);
+            long now = System.currentTimeMillis();
+            busyNanos += System.nanoTime() - started;
+            lastLagMillis = now - batch.get(0).queuedAtMillis;
+            maxLagMillis = Math.max(maxLagMillis, lastLagMillis);
+            handled.add(done);
+            batches.increment();
+            long second = now / 1000;
+            int slot = (int) (second % RATE_WINDOW_SECONDS);
+            if (rateSeconds[slot] != second) {
+                rateSeconds[slot] = second;
+                rateCounts[slot] = 0;
+            }
+            rateCounts[slot] += done;
+        }
+
+        // Returns how many of the events were handled
+        private int handleBatch(List<Delivery> batch) {
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<DomainEvent> events = new ArrayList<>(batch.size());
+            for (Delivery delivery : batch) {
+                events.add(delivery.event);
+            }
+            try {
+                consumer.handle(events);
+            } catch (RuntimeException e) {
+                failures.increment();
+                logger.warn("Event consumer {} failed on a batch of {} events, retrying them one at a time: {}",
+                        consumer.name(), batch.size(), e.getMessage());
+                return handleEach(batch);
+            }
+            for (Delivery delivery : batch) {
+                delivery.handled(bit);
+            }
+            return batch.size();
+        }
+
+        // Handles the events one by one, so a failing event only holds up itself. Returns
+        // how many were handled; the rest are offered again or, out of attempts, dropped
+        private int handleEach(List<Delivery> deliveries) {
+            int done = 0;
+            for (Delivery delivery : deliveries) {
+                try {
+                    consumer.handle(List.of(delivery.event));
+                } catch (RuntimeException e) {
+                    int attempt = attempts.merge(delivery, 1, Integer::sum);
+                    if (attempt < maxAttempts) {
+                        retries.increment();
+                        stall(delivery, bit);
+                        logger.warn("Event consumer {} failed on {} (attempt {} of {}): {}",
+                                consumer.name(), delivery.event, attempt, maxAttempts, e.getMessage());
+                        continue;
+                    }
+                    // Counts as handled, so its outbox row goes once the other consumers are done
+                    attempts.remove(delivery);
+                    dropped.increment();
+                    delivery.handled(bit);
+                    logger.error("Event consumer {} dropped {} after {} failed attempts", consumer.name(), delivery.event, attempt, e);
+                    continue;
+                }
+                attempts.remove(delivery);
+                delivery.handled(bit);
+                done++;
+            }
+            return done;
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long now = System.currentTimeMillis();
+            Delivery oldest = queue.peek();
+            long handledCount = handled.sum();
+            long batchCount = batches.sum();
+            long recent = 0;
+            for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+                if (rateSeconds[i] > now / 1000 - RATE_WINDOW_SECONDS) {
+                    recent += rateCounts[i];
+                }
+            }
+            stats.put("name", consumer.name());
+            stats.put("durable", consumer.durable());
+            stats.put("eventTypes", consumer.eventTypes().stream().map(Class::getSimpleName).sorted().toList());
+            stats.put("queued", queue.size());
+            // Age of the oldest event still waiting, zero when the consumer is caught up
+            stats.put("lagMs", oldest != null ? now - oldest.queuedAtMillis : 0);
+            stats.put("lastBatchLagMs", lastLagMillis);
+            stats.put("maxBatchLagMs", maxLagMillis);
+            stats.put("handled", handledCount);
+            stats.put("batches", batchCount);
+            stats.put("avgBatchSize", batchCount > 0 ? String.format("%.1f", (double) handledCount / batchCount) : null);
+            stats.put("eventsPerSecond", String.format("%.1f", (double) recent / RATE_WINDOW_SECONDS));
+            stats.put("busyMs", busyNanos / 1_000_000);
+            stats.put("failures", failures.sum());
+            stats.put("retries", retries.sum());
+            stats.put("dropped", dropped.sum());
+            stats.put("overflows", overflows.sum());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.movielist.service;
+
+import com.movielist.entity.User;
+import com.movielist.event.DomainEvent;
+import com.movielist.event.DomainEvent.CommentAdded;
+import com.movielist.event.DomainEvent.MovieAdded;
+import com.movielist.event.DomainEvent.MovieLiked;
+import com.movielist.event.DomainEvent.MovieUnliked;
+import com.movielist.event.DomainEvent.MovieWatched;
+import com.movielist.event.DomainEventConsumer;
+import com.movielist.payload.FeedItemResponse;
+import com.movielist.payload.PageResponse;
+import com.movielist.repository.CommentRepository;
+import com.movielist.repository.MovieRepository;
+import com.movielist.repository.UserRepository;
+import com.movielist.repository.WatchEventRepository;
+import com.movielist.util.IdCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Activity feed of the users a user follows: movies they added, watched, liked and
+ * commented on, newest first. Feeds are held in memory with a hybrid fan-out:
+ *
+ * <ul>
+ *   <li>every activity goes into its author's outbox, a ring of their recent activity;</li>
+ *   <li>an author with at most {@code movielist.feed.fanout-max-followers} followers also
+ *   has it pushed into each follower's inbox ring when it is published;</li>
+ *   <li>authors with more followers skip the push, and a reader's page merges their
+ *   outboxes with the reader's inbox at read time.</li>
+ * </ul>
+ *
+ * <p>Rings keep the newest {@code movielist.feed.inbox-size} activities in publish order,
+ * so a page is a k-way merge of sorted rings that stops once the page is full. Titles,
+ * names and comment text are looked up per page, which also drops activity on movies or
+ * comments deleted since. Follows only affect activity published after them, and
+ * activity of users no longer followed is filtered out on read.
+ *
+ * <p>Activity arrives as domain events. The feeds are not durable: after startup they are
+ * warmed up from the last {@code movielist.feed.warmup-days} of added movies, viewings and
+ * comments instead of from the event outbox. Likes carry no timestamp and are not replayed.
+ *
+ * <p>The event bus can deliver an event again after a failure. Publishing skips activity
+ * the author's outbox still holds, so a repeat only shows up twice once the original has
+ * been pushed out of that ring.
+ */
+@Service
+public class FeedService implements DomainEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedService.class);
+
+    private static final int LATENCY_SAMPLES = 1024;
+
+    public enum Type {
+        ADDED, WATCHED, LIKED, COMMENTED
+    }
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private WatchEventRepository watchEventRepository;
+
+    @Value("${movielist.feed.inbox-size:200}")
+    private int inboxSize;
+
+    @Value("${movielist.feed.fanout-max-followers:1000}")
+    private int fanoutMaxFollowers;
+
+    @Value("${movielist.feed.warmup-days:3}")
+    private int warmupDays;
+
+    @Value("${movielist.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${movielist.pagination.max-size:500}")
+    private int maxPageSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Live activity is numbered from 1; warmed-up history gets negative numbers before it
+    private final AtomicLong sequence = new AtomicLong();
+    private Feeds feeds = new Feeds();
+    // Activity published while a load runs, replayed onto the loaded feeds
+    private List<Activity> pending;
+    private volatile boolean loaded;
+    private volatile long lastLoadMillis;
+    private volatile int warmedUp;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder inboxWrites = new LongAdder();
+    private final AtomicLong reads = new AtomicLong();
+    private final long[] readMicros = new long[LATENCY_SAMPLES];
+
+    @Override
+    public String name() {
+        return "feed";
+    }
+
+    @Override
+    public Set<Class<? extends DomainEvent>> eventTypes() {
+        return Set.of(MovieAdded.class, MovieWatched.class, MovieLiked.class, MovieUnliked.class, CommentAdded.class);
+    }
+
+    @Override
+    public boolean durable() {
+        return false;
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof MovieAdded added) {
+                publish(added.userId(), Type.ADDED, added.movieId(), null, added.at());
+            } else if (event instanceof MovieWatched watched) {
+                publish(watched.userId(), Type.WATCHED, watched.movieId(), null, watched.at());
+            } else if (event instanceof MovieLiked liked) {
+                publish(liked.userId(), Type.LIKED, liked.movieId(), null, liked.at());
+            } else if (event instanceof CommentAdded comment) {
+                publish(comment.userId(), Type.COMMENTED, comment.movieId(), comment.commentId(), comment.at());
+            } else if (event instanceof MovieUnliked unliked) {
+                retractLike(unliked.userId(), unliked.movieId());
+            }
+        }
+    }
+
+    /**
+     * One page of the user's feed, newest first. Pass the {@code next} cursor of the
+     * previous page to continue. A page can hold fewer items than asked for when some
+     * refer to movies or comments deleted since.
+     */
+    public PageResponse<FeedItemResponse> getFeed(User user, String cursor, Integer size) {
+        long started = System.nanoTime();
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        long before = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : IdCursor.decode(cursor).id();
+
+        List<Activity> activities = merge(user.getId(), before, pageSize + 1);
+        String next = null;
+        if (activities.size() > pageSize) {
+            activities = activities.subList(0, pageSize);
+            next = new IdCursor(activities.get(pageSize - 1).seq).encode();
+        }
+        PageResponse<FeedItemResponse> page = new PageResponse<>(hydrate(activities), next);
+
+        long micros = (System.nanoTime() - started) / 1000;
+        readMicros[(int) (reads.getAndIncrement() % LATENCY_SAMPLES)] = micros;
+        return page;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        load();
+    }
+
+    /**
+     * Rebuilds the feeds from the recent history in the database.
+     */
+    public synchronized void load() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Activity> history = warmupDays > 0 ? readHistory(Instant.now().minus(warmupDays, ChronoUnit.DAYS)) : List.of();
+        Feeds fresh = new Feeds();
+        Map<Long, long[]> followersByUser = new HashMap<>();
+        for (Activity activity : history) {
+            deliver(fresh, activity, followersByUser.computeIfAbsent(activity.userId, this::fanoutTargets));
+        }
+        Map<Key, Activity> byKey = new HashMap<>();
+        for (Activity activity : history) {
+            byKey.put(activity.key(), activity);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Activity activity : pending) {
+                // Published live while the history was read, so it may be in both
+                Activity copy = byKey.get(activity.key());
+                if (copy != null) {
+                    copy.retracted = true;
+                }
+                deliver(fresh, activity, fanoutTargets(activity.userId));
+            }
+            pending = null;
+            feeds = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        warmedUp = history.size();
+        lastLoadMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Warmed up activity feeds with {} activities of the last {} days in {} ms",
+                history.size(), warmupDays, lastLoadMillis);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("lastLoadMs", lastLoadMillis);
+        stats.put("warmedUpActivities", warmedUp);
+        stats.put("inboxSize", inboxSize);
+        stats.put("fanoutMaxFollowers", fanoutMaxFollowers);
+        lock.readLock().lock();
+        try {
+            long entries = 0;
+            for (Ring inbox : feeds.inboxes.values()) {
+                entries += inbox.size;
+            }
+            stats.put("inboxes", feeds.inboxes.size());
+            stats.put("inboxEntries", entries);
+            stats.put("outboxes", feeds.outboxes.size());
+            stats.put("pullAuthors", feeds.pullAuthors.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("published", published.sum());
+        stats.put("inboxWrites", inboxWrites.sum());
+
+        long readCount = reads.get();
+        long[] samples = Arrays.copyOf(readMicros, (int) Math.min(readCount, LATENCY_SAMPLES));
+        Arrays.sort(samples);
+        stats.put("reads", readCount);
+        stats.put("readP50Micros", percentile(samples, 0.50));
+        stats.put("readP99Micros", percentile(samples, 0.99));
+        stats.put("readMaxMicros", samples.length > 0 ? samples[samples.length - 1] : null);
+        return stats;
+    }
+
+    private void publish(long userId, Type type, long movieId, Long commentId, Instant at) {
+        long[] targets = fanoutTargets(userId);
+        Key key = Activity.key(type, userId, movieId, commentId, at);
+        lock.writeLock().lock();
+        try {
+            Ring outbox = feeds.outboxes.get(userId);
+            if (outbox != null && outbox.contains(key)) {
+                return;
+            }
+            // Numbered under the lock so every ring stays in publish order
+            Activity activity = new Activity(sequence.incrementAndGet(), userId, type, movieId, commentId, at);
+            deliver(feeds, activity, targets);
+            if (pending != null) {
+                pending.add(activity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        published.increment();
+    }
+
+    // Hides the user's like of a movie from every feed
+    private void retractLike(long userId, long movieId) {
+        lock.readLock().lock();
+        try {
+            Ring outbox = feeds.outboxes.get(userId);
+            if (outbox != null) {
+                outbox.retract(Type.LIKED, movieId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The user's followers, or null when there are too many to push to
+    private long[] fanoutTargets(long userId) {
+        return followGraphService.followersCount(userId) <= fanoutMaxFollowers ? followGraphService.followers(userId) : null;
+    }
+
+    private void deliver(Feeds target, Activity activity, long[] followers) {
+        target.outboxes.computeIfAbsent(activity.userId, id -> new Ring(inboxSize)).add(activity);
+        if (followers == null) {
+            target.pullAuthors.add(activity.userId);
+            return;
+        }
+        for (long follower : followers) {
+            target.inboxes.computeIfAbsent(follower, id -> new Ring(inboxSize)).add(activity);
+        }
+        inboxWrites.add(followers.length);
+    }
+
+    // Up to limit visible activities older than before, newest first
+    private List<Activity> merge(long userId, long before, int limit) {
+        long[] following = followGraphService.following(userId);
+        List<Activity> picked = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            PriorityQueue<RingCursor> heads = new PriorityQueue<>(Comparator.comparingLong((RingCursor head) -> head.current().seq).reversed());
+            addCursor(heads, feeds.inboxes.get(userId), before);
+            // Intersect the followed users with the pull authors from whichever side is smaller
+            if (feeds.pullAuthors.size() <= following.length) {
+                for (Long author : feeds.pullAuthors) {
+                    if (Arrays.binarySearch(following, author) >= 0) {
+                        addCursor(heads, feeds.outboxes.get(author), before);
+                    }
+                }
+            } else {
+                for (long author : following) {
+                    if (feeds.pullAuthors.contains(author)) {
+                        addCursor(heads, feeds.outboxes.get(author), before);
+                    }
+                }
+            }
+
+            long last = Long.MAX_VALUE;
+            while (!heads.isEmpty() && picked.size() < limit) {
+                RingCursor head = heads.poll();
+                Activity activity = head.current();
+                if (--head.index >= 0) {
+                    heads.add(head);
+                }
+                // An author who once had too many followers can reach a reader both ways
+                if (activity.seq == last) {
+                    continue;
+                }
+                last = activity.seq;
+                if (!activity.retracted && Arrays.binarySearch(following, activity.userId) >= 0) {
+                    picked.add(activity);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return picked;
+    }
+
+    private static void addCursor(PriorityQueue<RingCursor> heads, Ring ring, long before) {
+        if (ring == null) {
+            return;
+        }
+        int index = ring.lastBefore(before);
+        if (index >= 0) {
+            heads.add(new RingCursor(ring, index));
+        }
+    }
+
+    // One query each for the authors, movie titles and comment texts of the page
+    private List<FeedItemResponse> hydrate(List<Activity> activities) {
+        if (activities.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> movieIds = new HashSet<>();
+        Set<Long> commentIds = new HashSet<>();
+        for (Activity activity : activities) {
+            userIds.add(activity.userId);
+            movieIds.add(activity.movieId);
+            if (activity.commentId != null) {
+                commentIds.add(activity.commentId);
+            }
+        }
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, String> titles = toMap(movieRepository.findTitlesByIds(movieIds));
+        Map<Long, String> comments = commentIds.isEmpty() ? Map.of() : toMap(commentRepository.findContentByIds(commentIds));
+
+        List<FeedItemResponse> items = new ArrayList<>(activities.size());
+        for (Activity activity : activities) {
+            User user = users.get(activity.userId);
+            String title = titles.get(activity.movieId);
+            String comment = activity.commentId != null ? comments.get(activity.commentId) : null;
+            if (user == null || title == null || (activity.commentId != null && comment == null)) {
+                continue;
+            }
+            items.add(new FeedItemResponse(activity.seq, activity.type.name(), activity.at, user.getId(),
+                    user.getUsername(), user.getProfilePictureUrl(), activity.movieId, title, activity.commentId, comment));
+        }
+        return items;
+    }
+
+    private static Map<Long, String> toMap(List<Object[]> rows) {
+        Map<Long, String> map = new HashMap<>();
+        for (Object[] row : rows) {
+            map.put((Long) row[0], (String) row[1]);
+        }
+        return map;
+    }
+
+    // Activity since the given instant in time order, numbered so it sorts before live activity
+    private List<Activity> readHistory(Instant since) {
+        List<Object[]> added = movieRepository.findAddedSince(since);
+        List<Object[]> watched = watchEventRepository.findMovieViewingsSince(since);
+        List<Object[]> commented = commentRepository.findPostedSince(LocalDateTime.ofInstant(since, ZoneId.systemDefault()));
+
+        List<Activity> history = new ArrayList<>(added.size() + watched.size() + commented.size());
+        for (Object[] row : added) {
+            history.add(new Activity(0, (Long) row[1], Type.ADDED, (Long) row[0], null, (Instant) row[2]));
+        }
+        for (Object[] row : watched) {
+            history.add(new Activity(0, (Long) row[0], Type.WATCHED, (Long) row[1], null, (Instant) row[2]));
+        }
+        for (Object[] row : commented) {
+            Instant at = ((LocalDateTime) row[3]).atZone(ZoneId.systemDefault()).toInstant();
+            history.add(new Activity(0, (Long) row[1], Type.COMMENTED, (Long) row[2], (Long) row[0], at));
+        }
+        history.sort(Comparator.comparing((Activity activity) -> activity.at));
+
+        List<Activity> numbered = new ArrayList<>(history.size());
+        long seq = -history.size();
+        for (Activity activity : history) {
+            numbered.add(new Activity(seq++, activity.userId, activity.type, activity.movieId, activity.commentId, activity.at));
+        }
+        return numbered;
+    }
+
+    private static Long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static final class Feeds {
+        private final Map<Long, Ring> inboxes = new HashMap<>();
+        private final Map<Long, Ring> outboxes = new HashMap<>();
+        // Authors whose activity skipped the push at least once; readers merge their outboxes
+        private final Set<Long> pullAuthors = new HashSet<>();
+    }
+
+    private static final class Activity {
+        private final long seq;
+        private final long userId;
+        private final Type type;
+        private final long movieId;
+        private final Long commentId;
+        private final Instant at;
+        // Set on unlike; a retracted activity stays in the rings but is skipped on read
+        private volatile boolean retracted;
+
+        Activity(long seq, long userId, Type type, long movieId, Long commentId, Instant at) {
+            this.seq = seq;
+            this.userId = userId;
+            this.type = type;
+            this.movieId = movieId;
+            this.commentId = commentId;
+            this.at = at;
+        }
+
+        // Identifies the same activity whether it was published live or read back from the tables
+        Key key() {
+            return key(type, userId, movieId, commentId, at);
+        }
+
+        static Key key(Type type, long userId, long movieId, Long commentId, Instant at) {
+            long ref = switch (type) {
+                case COMMENTED -> commentId;
+                case WATCHED -> at.toEpochMilli();
+                default -> 0;
+            };
+            return new Key(type, userId, movieId, ref);
+        }
+    }
+
+    private record Key(Type type, long userId, long movieId, long ref) {
+    }
+
+    /**
+     * The newest activities of one feed or author in ascending sequence order, overwriting
+     * the oldest once full. The array grows to capacity on demand, so quiet users stay small.
+     */
+    private static final class Ring {
+        private final int capacity;
+        private Activity[] items;
+        private int start;
+        private int size;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            this.items = new Activity[Math.min(capacity, 8)];
+        }
+
+        void add(Activity activity) {
+            if (size == items.length && size < capacity) {
+                Activity[] grown = new Activity[Math.min(capacity, size * 2)];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                items = grown;
+                start = 0;
+            }
+            if (size < items.length) {
+                items[(start + size++) % items.length] = activity;
+            } else {
+                items[start] = activity;
+                start = (start + 1) % items.length;
+            }
+        }
+
+        // 0 is the oldest
+        Activity get(int index) {
+            return items[(start + index) % items.length];
+        }
+
+        // Index of the newest activity numbered below seq, or -1
+        int lastBefore(long seq) {
+            int low = 0;
+            int high = size - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).seq < seq) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        // Whether the ring holds the activity unretracted; a like undone by an unlike can be
+        // given again
+        boolean contains(Key key) {
+            for (int i = size - 1; i >= 0; i--) {
+                Activity activity = get(i);
+                if (!activity.retracted && activity.type == key.type() && activity.movieId == key.movieId()
+                        && activity.key().equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void retract(Type type, long movieId) {
+            for (int i = 0; i < size; i++) {
+                Activity activity = get(i);
+                if (activity.type == type && activity.movieId == movieId) {
+                    activity.retracted = true;
+                }
+            }
+        }
+    }
+
+    private static final class RingCursor {
+        private final Ring ring;
+        private int index;
+
+        RingCursor(Ring ring, int index) {
+            this.ring = ring;
+            this.index = index;
+        }
+
+        Activity current() {
+            return ring.get(index);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.movielist.service;
+
+import com.movielist.repository.FollowRepository;
+import com.movielist.util.AfterCommit;
+import com.movielist.util.FollowGraph;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * The follows table held in memory as a {@link FollowGraph}, answering follow checks,
+ * follower and following counts, mutual follows and friend-of-friend suggestions without
+ * a query. UserService applies each follow and unfollow once its transaction commits.
+ *
+ * <p>After startup the graph is read from a snapshot file when one is configured and
+ * still matches the table (same row count and highest follow id), and otherwise from the
+ * table page by page. A dirty graph is written back to the snapshot on an interval and on
+ * shutdown, so restarts skip the table scan.
+ */
+@Service
+public class FollowGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraphService.class);
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Value("${movielist.follow-graph.load-page-size:10000}")
+    private int loadPageSize;
+
+    @Value("${movielist.follow-graph.snapshot-path:}")
+    private String snapshotPath;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FollowGraph graph = new FollowGraph();
+    // Highest follow id reflected in the graph, recorded in snapshots to validate them
+    private long maxFollowId;
+    // Writes committed while a load runs, replayed onto the loaded graph
+    private List<long[]> pending;
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+    private volatile String loadedFrom = "none";
+    private volatile long lastLoadMillis;
+    private volatile long lastSnapshotMillis;
+
+    public void addAfterCommit(long followId, long followerId, long followingId) {
+        AfterCommit.run(() -> apply(new long[]{followId, followerId, followingId, 1}));
+    }
+
+    public void removeAfterCommit(long followerId, long followingId) {
+        AfterCommit.run(() -> apply(new long[]{0, followerId, followingId, -1}));
+    }
+
+    public boolean isFollowing(long followerId, long followingId) {
+        return read(graph -> graph.contains(followerId, followingId));
+    }
+
+    public boolean isMutual(long userId, long otherId) {
+        return read(graph -> graph.isMutual(userId, otherId));
+    }
+
+    public long followersCount(long userId) {
+        return read(graph -> graph.followersCount(userId));
+    }
+
+    public long followingCount(long userId) {
+        return read(graph -> graph.followingCount(userId));
+    }
+
+    /**
+     * Ids of the users the user follows, ascending.
+     */
+    public long[] following(long userId) {
+        return read(graph -> graph.following(userId));
+    }
+
+    /**
+     * Ids of the users following the user, ascending.
+     */
+    public long[] followers(long userId) {
+        return read(graph -> graph.followers(userId));
+    }
+
+    /**
+     * Up to limit users the user might follow, best first; see {@link FollowGraph#suggest}.
+     */
+    public List<FollowGraph.Suggestion> suggest(long userId, int limit) {
+        return read(graph -> graph.suggest(userId, limit));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loadIfNeeded();
+    }
+
+    /**
+     * Replaces the graph with the snapshot if it is current, or else with the table.
+     */
+    public synchronized void load() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long rows = followRepository.count();
+        Long maxId = followRepository.findMaxId();
+        long tableMaxId = maxId != null ? maxId : 0L;
+        FollowGraph fresh = readSnapshot(rows, tableMaxId);
+        String source = "snapshot";
+        if (fresh == null) {
+            fresh = readTable();
+            source = "database";
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (long[] write : pending) {
+                applyTo(fresh, write);
+                tableMaxId = Math.max(tableMaxId, write[0]);
+            }
+            pending = null;
+            graph = fresh;
+            maxFollowId = tableMaxId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        dirty = source.equals("database");
+        loadedFrom = source;
+        lastLoadMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Loaded follow graph of {} users and {} follows from the {} in {} ms",
+                fresh.userCount(), fresh.edgeCount(), source, lastLoadMillis);
+    }
+
+    /**
+     * Writes the graph to the snapshot file if it changed since the last write. The file
+     * is replaced atomically, so a crash mid-write leaves the previous snapshot.
+     */
+    @Scheduled(fixedDelayString = "${movielist.follow-graph.snapshot-interval-ms:300000}",
+            initialDelayString = "${movielist.follow-graph.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public synchronized void writeSnapshot() {
+        if (snapshotPath.isBlank() || !loaded || !dirty) {
+            return;
+        }
+        long started = System.nanoTime();
+        Path target = Paths.get(snapshotPath);
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+            // Readers may continue; only writers wait while the graph is serialized
+            lock.readLock().lock();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeLong(maxFollowId);
+                graph.writeTo(out);
+                dirty = false;
+            } finally {
+                lock.readLock().unlock();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastSnapshotMillis = (System.nanoTime() - started) / 1_000_000;
+            logger.debug("Wrote follow graph snapshot to {} in {} ms", target, lastSnapshotMillis);
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("Failed to write follow graph snapshot to {}: {}", target, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("loadedFrom", loadedFrom);
+        stats.put("lastLoadMs", lastLoadMillis);
+        stats.put("lastSnapshotMs", lastSnapshotMillis);
+        stats.put("snapshotPath", snapshotPath.isBlank() ? null : snapshotPath);
+        lock.readLock().lock();
+        try {
+            stats.put("users", graph.userCount());
+            stats.put("follows", graph.edgeCount());
+            long bytes = graph.sizeInBytes();
+            stats.put("sizeBytes", bytes);
+            stats.put("bytesPerFollow", graph.edgeCount() > 0 ? String.format("%.1f", (double) bytes / graph.edgeCount()) : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private <T> T read(Function<FollowGraph, T> reader) {
+        if (!loaded) {
+            loadIfNeeded();
+        }
+        lock.readLock().lock();
+        try {
+            return reader.apply(graph);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers arriving during the first load wait for it instead of loading again
+    private synchronized void loadIfNeeded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private void apply(long[] write) {
+        lock.writeLock().lock();
+        try {
+            applyTo(graph, write);
+            maxFollowId = Math.max(maxFollowId, write[0]);
+            if (pending != null) {
+                pending.add(write);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds and removes are idempotent, so replaying a write the load already saw is harmless
+    private static void applyTo(FollowGraph target, long[] write) {
+        if (write[3] > 0) {
+            target.add(write[1], write[2]);
+        } else {
+            target.remove(write[1], write[2]);
+        }
+    }
+
+    private FollowGraph readTable() {
+        long[] followerIds = new long[1024];
+        long[] followingIds = new long[1024];
+        int edges = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> page = followRepository.findEdgesAfter(afterId, PageRequest.of(0, loadPageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            if (edges + page.size() > followerIds.length) {
+                int capacity = Math.max(followerIds.length * 2, edges + page.size());
+                followerIds = Arrays.copyOf(followerIds, capacity);
+                followingIds = Arrays.copyOf(followingIds, capacity);
+            }
+            for (Object[] row : page) {
+                followerIds[edges] = (Long) row[1];
+                followingIds[edges++] = (Long) row[2];
+            }
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+        return FollowGraph.of(followerIds, followingIds, edges);
+    }
+
+    // The snapshot, or null if there is none or it no longer matches the table
+    private FollowGraph readSnapshot(long tableRows, long tableMaxId) {
+        if (snapshotPath.isBlank() || !Files.isRegularFile(Paths.get(snapshotPath))) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(snapshotPath)), 1 << 16))) {
+            long snapshotMaxId = in.readLong();
+            FollowGraph snapshot = FollowGraph.readFrom(in);
+            if (snapshotMaxId != tableMaxId || snapshot.edgeCount() != tableRows) {
+                logger.info("Follow graph snapshot is stale ({} follows up to id {}, table has {} up to id {}); loading from the database",
+                        snapshot.edgeCount(), snapshotMaxId, tableRows, tableMaxId);
+                return null;
+            }
+            return snapshot;
+        } catch (IOException e) {
+            logger.warn("Could not read follow graph snapshot {}: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+}
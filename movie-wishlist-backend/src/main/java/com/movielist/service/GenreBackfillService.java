@@ -0,0 +1,61 @@
+package com.movielist.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * Fills in genre_mask for movies that predate it and refreshes everything derived from
+ * genres for the owners of those movies. Kept apart from GenreService because user stats
+ * themselves depend on the genre dictionary.
+ */
+@Service
+public class GenreBackfillService {
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Value("${movielist.genres.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * @return the number of users whose movies gained a genre mask
+     */
+    public synchronized int backfill() {
+        Set<Long> affectedUsers = genreService.backfillMasks();
+        if (affectedUsers.isEmpty()) {
+            return 0;
+        }
+        // Rows built from the old free-text genres count "Action, Sci-Fi" as one genre
+        affectedUsers.forEach(userStatsService::rebuild);
+        if (movieFactStore.isLoaded()) {
+            movieFactStore.rebuild();
+            globalAnalyticsCache.triggerRefresh();
+        }
+        return affectedUsers.size();
+    }
+
+    // Before the fact store loads, so it reads the backfilled masks
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.movielist.service;
+
+import com.movielist.entity.Genre;
+import com.movielist.repository.GenreRepository;
+import com.movielist.repository.MovieRepository;
+import com.movielist.util.GenreDictionary;
+import com.movielist.util.WatchAggregator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The genre dictionary behind {@code movies.genre_mask}. Free-text genres such as
+ * "Action, Sci-Fi" are split into names, each registered name owns one bit of the mask,
+ * and the name-to-bit mapping is persisted in the genres table and cached in memory.
+ *
+ * <p>A bit can never be reused, so names are only registered from the curated
+ * {@code movielist.genres.known} list on startup and by the mask backfill. Movie writes
+ * only look names up; parts that are not registered genres stay in the free text but not
+ * in the mask. Registering a 65th genre fails.
+ */
+@Service
+public class GenreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenreService.class);
+
+    private static final String INSERT_GENRE_SQL = "INSERT INTO genres (bit_index, name) VALUES (?, ?)";
+
+    private static final String UPDATE_MASK_SQL = "UPDATE movies SET genre_mask = ? WHERE id = ?";
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${movielist.genres.backfill-page-size:1000}")
+    private int backfillPageSize;
+
+    @Value("${movielist.genres.known:}")
+    private List<String> knownGenres;
+
+    // Guards the dictionary; never held across a database call
+    private final GenreDictionary dictionary = new GenreDictionary();
+    private volatile String[] names = new String[GenreDictionary.MAX_GENRES];
+    // Serializes registrations, which only the startup and the backfill perform
+    private final Object registration = new Object();
+
+    @PostConstruct
+    public void load() {
+        reload();
+        for (String name : knownGenres) {
+            if (!name.isBlank()) {
+                register(name.trim());
+            }
+        }
+        logger.info("Loaded {} genres", size());
+    }
+
+    /**
+     * Returns the mask of the registered genres named in free text, without registering
+     * anything. A result of 0 means none of the names is a known genre.
+     */
+    public synchronized long maskOf(String genres) {
+        return dictionary.maskOf(genres);
+    }
+
+    /**
+     * Genre names indexed by bit, with null for free bits. The array must not be modified.
+     */
+    public String[] names() {
+        return names;
+    }
+
+    public List<String> namesOf(long mask) {
+        String[] current = names;
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            String name = current[Long.numberOfTrailingZeros(remaining)];
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return dictionary.size();
+    }
+
+    /**
+     * Computes genre_mask for movies that have a genre but no mask yet, such as rows
+     * written before the column existed, in pages by id with one batched UPDATE per page.
+     *
+     * @return the owners of the updated movies, whose derived stats are now stale
+     */
+    public Set<Long> backfillMasks() {
+        Set<Long> affectedUsers = new HashSet<>();
+        long updated = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> page = movieRepository.findUnmaskedGenresAfter(afterId, PageRequest.of(0, backfillPageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Object[]> batch = new ArrayList<>(page.size());
+            for (Object[] row : page) {
+                GenreDictionary.split((String) row[2]).forEach(this::register);
+                long mask = maskOf((String) row[2]);
+                if (mask != 0) {
+                    batch.add(new Object[]{mask, row[0]});
+                    affectedUsers.add((Long) row[1]);
+                }
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_MASK_SQL, batch);
+                updated += batch.size();
+            }
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+        if (updated > 0) {
+            logger.info("Backfilled genre masks of {} movies owned by {} users", updated, affectedUsers.size());
+        }
+        return affectedUsers;
+    }
+
+    // Registers the genre unless it is known. The INSERT runs in its own auto-committed
+    // statement outside the dictionary's monitor, so no caller waits on it while holding
+    // a connection.
+    private void register(String name) {
+        if (name.isEmpty() || name.length() > GenreDictionary.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid genre name '" + name + "'");
+        }
+        synchronized (registration) {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                int bit;
+                synchronized (this) {
+                    if (dictionary.bitOf(name) != WatchAggregator.NONE) {
+                        return;
+                    }
+                    bit = dictionary.nextFreeBit();
+                }
+                if (bit == WatchAggregator.NONE) {
+                    throw new IllegalStateException("All " + GenreDictionary.MAX_GENRES
+                            + " genre bits are taken, cannot register genre '" + name + "'");
+                }
+                try {
+                    // A plain INSERT, so a bit taken concurrently fails instead of being renamed
+                    jdbcTemplate.update(INSERT_GENRE_SQL, bit, name);
+                } catch (DataIntegrityViolationException e) {
+                    // Another instance registered this name or took the bit first
+                    reload();
+                    continue;
+                }
+                synchronized (this) {
+                    dictionary.put(bit, name);
+                    names = dictionary.toArray();
+                }
+                logger.info("Registered genre '{}' as bit {}", name, bit);
+                return;
+            }
+        }
+        throw new IllegalStateException("Could not register genre '" + name + "'");
+    }
+
+    private void reload() {
+        List<Genre> genres = genreRepository.findAll();
+        synchronized (this) {
+            for (Genre genre : genres) {
+                dictionary.put(genre.getBit(), genre.getName());
+            }
+            names = dictionary.toArray();
+        }
+    }
+}
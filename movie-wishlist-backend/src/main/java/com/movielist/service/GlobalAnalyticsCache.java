@@ -0,0 +1,171 @@
+package com.movielist.service;
+
+import com.movielist.payload.AnalyticsResponse;
+import com.movielist.payload.GenreStatsResponse;
+import com.movielist.payload.MonthlyStatsResponse;
+import com.movielist.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the global analytics endpoints from an immutable snapshot held in an
+ * AtomicReference. A single background thread recomputes the snapshot on a fixed interval
+ * when anything was written since the last one, or as soon as the configured number of
+ * writes has accumulated. Readers never wait for a recomputation, except for the very first
+ * request if it arrives before the startup computation has finished.
+ */
+@Service
+public class GlobalAnalyticsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlobalAnalyticsCache.class);
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Value("${movielist.analytics.global-refresh-after-writes:1000}")
+    private long refreshAfterWrites;
+
+    public record Snapshot(AnalyticsResponse analytics,
+                           List<GenreStatsResponse> genres,
+                           List<MonthlyStatsResponse> monthly,
+                           Instant computedAt,
+                           long computeMillis) {
+
+        public Duration age() {
+            return Duration.between(computedAt, Instant.now());
+        }
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicLong writesSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "global-analytics-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Cold start only: join the in-flight computation instead of starting another one
+        return CompletableFuture.supplyAsync(this::refreshNow, refresher).join();
+    }
+
+    /**
+     * Counts writes that affect the global numbers; reaching the threshold triggers an
+     * early background refresh. Inside a transaction the write is counted after commit,
+     * so a refresh can never run between the count and the data becoming visible.
+     */
+    public void recordWrites(long count) {
+        AfterCommit.run(() -> countWrites(count));
+    }
+
+    public void recordWrite() {
+        recordWrites(1);
+    }
+
+    @Scheduled(fixedDelayString = "${movielist.analytics.global-refresh-interval-ms:60000}",
+            initialDelayString = "${movielist.analytics.global-refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (writesSinceSnapshot.get() > 0) {
+            triggerRefresh();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void computeOnStartup() {
+        triggerRefresh();
+    }
+
+    /**
+     * Schedules a recomputation unless one is already queued or running.
+     */
+    public void triggerRefresh() {
+        if (refreshing.compareAndSet(false, true)) {
+            refresher.execute(this::refreshNow);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot snapshot = current.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("computedAt", snapshot != null ? snapshot.computedAt() : null);
+        stats.put("ageMs", snapshot != null ? snapshot.age().toMillis() : null);
+        stats.put("lastComputeMs", snapshot != null ? snapshot.computeMillis() : null);
+        stats.put("writesSinceSnapshot", writesSinceSnapshot.get());
+        stats.put("refreshAfterWrites", refreshAfterWrites);
+        stats.put("refreshes", refreshes.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void countWrites(long count) {
+        if (writesSinceSnapshot.addAndGet(count) >= refreshAfterWrites) {
+            triggerRefresh();
+        }
+    }
+
+    // Runs on the refresher thread only, so computations never overlap
+    private Snapshot refreshNow() {
+        Snapshot existing = current.get();
+        if (existing != null && !refreshing.get()) {
+            return existing; // a queued cold-start request that another refresh already satisfied
+        }
+        try {
+            // Writes arriving from here on are not guaranteed to be in this snapshot
+            long writes = writesSinceSnapshot.getAndSet(0);
+            long startedAt = System.nanoTime();
+            Instant computedAt = Instant.now();
+            Snapshot snapshot = new Snapshot(
+                    analyticsService.getGlobalAnalytics(),
+                    List.copyOf(analyticsService.getGlobalGenreStats()),
+                    List.copyOf(analyticsService.getGlobalMonthlyStats()),
+                    computedAt,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+            current.set(snapshot);
+            refreshes.increment();
+            logger.debug("Global analytics snapshot refreshed in {} ms after {} writes", snapshot.computeMillis(), writes);
+            return snapshot;
+        } catch (RuntimeException e) {
+            failures.increment();
+            writesSinceSnapshot.incrementAndGet(); // keep the interval refresh retrying
+            logger.error("Failed to refresh global analytics snapshot: {}", e.getMessage());
+            if (existing != null) {
+                return existing;
+            }
+            throw e;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.movielist.service;
+
+import com.movielist.repository.MovieRepository;
+import com.movielist.repository.UserRepository;
+import com.movielist.repository.WatchEventRepository;
+import com.movielist.util.GenreDictionary;
+import com.movielist.util.LongIntHashMap;
+import com.movielist.util.RankedIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Users ranked by watched-movie count, held in memory in {@link RankedIndex}es so the top
+ * K, any page of ranks and the rank of one user are answered without touching the
+ * database. UserStatsService reports each change of a user's watched count once it has
+ * committed. Changes are applied as deltas, which commute, so concurrent commits may land
+ * in any order. The boards are loaded from aggregate queries at startup and reloaded on an
+ * interval into fresh boards that replace the live ones. Users written while a reload
+ * runs are read again with commits briefly held off, the way FollowGraphService replays
+ * its pending writes, so a change is never lost to nor counted twice by a reload.
+ *
+ * <p>Besides the all-time board there is one board per genre, counting watched movies
+ * with that genre, and one per {@link Window}, counting viewings in the last days. The
+ * windowed boards are fed from a ring of per-day buckets holding each active user's
+ * viewings on that day. When the day changes, only the users in the buckets that drop
+ * out of a window are subtracted from its board, so expiry never rescans anything.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /**
+     * Rolling windows of whole UTC days, today included.
+     */
+    public enum Window {
+        DAYS_7(7),
+        DAYS_30(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        public int days() {
+            return days;
+        }
+
+        /**
+         * The window of the given length, or null if there is none.
+         */
+        public static Window ofDays(int days) {
+            for (Window window : values()) {
+                if (window.days == days) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Enough day buckets for the longest window
+    private static final int RING_DAYS = Window.DAYS_30.days;
+
+    // Users re-read per query when a reload catches up on the writes made while it ran
+    private static final int REREAD_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private WatchEventRepository watchEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Boards boards = new Boards(0);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Read side held by each writing transaction from just before it commits until its
+    // change is applied; write side held by a reload while it re-reads the written users
+    private final ReadWriteLock commits = new ReentrantReadWriteLock();
+    // Users written while a reload runs, read again before the reloaded boards go live
+    private Set<Long> written;
+    private volatile boolean loaded;
+    private volatile long lastLoadMillis;
+    private volatile int lastRereadUsers;
+
+    /**
+     * The boards and the day buckets feeding the windowed ones, replaced as a whole by a
+     * reload. Guarded by the lock.
+     */
+    private static class Boards {
+        private final RankedIndex index = new RankedIndex();
+        private final RankedIndex[] genreIndexes = new RankedIndex[GenreDictionary.MAX_GENRES];
+        private final RankedIndex[] windowIndexes = new RankedIndex[Window.values().length];
+        private final LongIntHashMap[] dayBuckets = new LongIntHashMap[RING_DAYS];
+        // UTC epoch day of the newest bucket
+        private long currentDay;
+
+        Boards(long day) {
+            for (int i = 0; i < windowIndexes.length; i++) {
+                windowIndexes[i] = new RankedIndex();
+            }
+            clearWindows(day);
+        }
+
+        /**
+         * Adds rows of the watched-count, genre and viewing queries.
+         */
+        void load(List<Object[]> counts, List<Object[]> genreCounts, List<Object[]> viewings) {
+            for (Object[] row : counts) {
+                index.put((Long) row[0], (Long) row[1]);
+            }
+            for (Object[] row : genreCounts) {
+                long userId = (Long) row[0];
+                long count = (Long) row[2];
+                for (long remaining = (Long) row[1]; remaining != 0; remaining &= remaining - 1) {
+                    genreIndex(Long.numberOfTrailingZeros(remaining)).add(userId, count);
+                }
+            }
+            for (Object[] row : viewings) {
+                addViewings((Long) row[0], epochDay((Instant) row[1]), 1);
+            }
+        }
+
+        // Drops the user from every board and day bucket, before their rows are read again
+        void removeUser(long userId) {
+            index.remove(userId);
+            for (RankedIndex genreIndex : genreIndexes) {
+                if (genreIndex != null) {
+                    genreIndex.remove(userId);
+                }
+            }
+            for (RankedIndex windowIndex : windowIndexes) {
+                windowIndex.remove(userId);
+            }
+            for (LongIntHashMap bucket : dayBuckets) {
+                bucket.remove(userId);
+            }
+        }
+
+        RankedIndex genreIndex(int genre) {
+            if (genreIndexes[genre] == null) {
+                genreIndexes[genre] = new RankedIndex();
+            }
+            return genreIndexes[genre];
+        }
+
+        void addViewings(long userId, long day, int viewings) {
+            rollTo(day);
+            if (day <= currentDay - RING_DAYS) {
+                return;
+            }
+            LongIntHashMap bucket = dayBuckets[slotOf(day)];
+            bucket.put(userId, bucket.get(userId, 0) + viewings);
+            for (Window window : Window.values()) {
+                if (day > currentDay - window.days) {
+                    windowIndexes[window.ordinal()].add(userId, viewings);
+                }
+            }
+        }
+
+        void rollTo(long day) {
+            if (day <= currentDay) {
+                return;
+            }
+            if (day - currentDay >= RING_DAYS) {
+                clearWindows(day);
+                return;
+            }
+            while (currentDay < day) {
+                currentDay++;
+                for (Window window : Window.values()) {
+                    // The bucket that just left this window; for the longest window it is the
+                    // slot being reused for the new day
+                    RankedIndex board = windowIndexes[window.ordinal()];
+                    dayBuckets[slotOf(currentDay - window.days)]
+                            .forEach((userId, viewings) -> addPositive(board, userId, -viewings));
+                }
+                dayBuckets[slotOf(currentDay)] = new LongIntHashMap();
+            }
+        }
+
+        void clearWindows(long day) {
+            for (RankedIndex windowIndex : windowIndexes) {
+                windowIndex.clear();
+            }
+            for (int i = 0; i < dayBuckets.length; i++) {
+                dayBuckets[i] = new LongIntHashMap();
+            }
+            currentDay = day;
+        }
+    }
+
+    public void adjustAfterCommit(long userId, long delta) {
+        afterCommit(userId, b -> b.index.add(userId, delta));
+    }
+
+    /**
+     * Sets a user's count outright, for callers that do not know the previous value.
+     */
+    public void setAfterCommit(long userId, long watchedCount) {
+        afterCommit(userId, b -> b.index.put(userId, watchedCount));
+    }
+
+    /**
+     * Adds a new user with no watched movies, so they rank from the start.
+     */
+    public void addUserAfterCommit(long userId) {
+        adjustAfterCommit(userId, 0);
+    }
+
+    /**
+     * Adds delta to the user's count on the board of every genre in the mask.
+     */
+    public void adjustGenresAfterCommit(long userId, long genreMask, long delta) {
+        if (genreMask == 0 || delta == 0) {
+            return;
+        }
+        afterCommit(userId, b -> {
+            for (long remaining = genreMask; remaining != 0; remaining &= remaining - 1) {
+                int genre = Long.numberOfTrailingZeros(remaining);
+                addPositive(b.genreIndex(genre), userId, delta);
+            }
+        });
+    }
+
+    /**
+     * Sets the user's count on every genre board, with counts indexed by genre bit.
+     */
+    public void setGenresAfterCommit(long userId, long[] countsByGenre) {
+        long[] counts = countsByGenre.clone();
+        afterCommit(userId, b -> {
+            for (int genre = 0; genre < counts.length; genre++) {
+                if (counts[genre] > 0) {
+                    b.genreIndex(genre).put(userId, counts[genre]);
+                } else if (b.genreIndexes[genre] != null) {
+                    b.genreIndexes[genre].remove(userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Counts viewings of the user at watchedAt towards the windowed boards.
+     */
+    public void recordViewingsAfterCommit(long userId, int viewings, Instant watchedAt) {
+        if (viewings <= 0) {
+            return;
+        }
+        long day = epochDay(watchedAt);
+        afterCommit(userId, b -> {
+            if (loaded) {
+                b.rollTo(Math.max(day, today()));
+                b.addViewings(userId, day, viewings);
+            }
+        });
+    }
+
+    /**
+     * Up to limit entries from the 0-based offset, best first.
+     */
+    public List<RankedIndex.Entry> page(int offset, int limit) {
+        return read(b -> b.index, board -> board.range(offset, limit));
+    }
+
+    public List<RankedIndex.Entry> page(Window window, int offset, int limit) {
+        rollToToday();
+        return read(b -> b.windowIndexes[window.ordinal()], board -> board.range(offset, limit));
+    }
+
+    public List<RankedIndex.Entry> genrePage(int genre, int offset, int limit) {
+        return read(b -> b.genreIndexes[genre], board -> board != null ? board.range(offset, limit) : List.of());
+    }
+
+    /**
+     * The user's entry, or null if the user is not ranked.
+     */
+    public RankedIndex.Entry rankOf(long userId) {
+        return read(b -> b.index, board -> board.entryOf(userId));
+    }
+
+    /**
+     * The user's entry on a windowed board, or null if they watched nothing in the window.
+     */
+    public RankedIndex.Entry rankOf(Window window, long userId) {
+        rollToToday();
+        return read(b -> b.windowIndexes[window.ordinal()], board -> board.entryOf(userId));
+    }
+
+    /**
+     * The user's entry on a genre board, or null if they watched nothing in the genre.
+     */
+    public RankedIndex.Entry genreRankOf(int genre, long userId) {
+        return read(b -> b.genreIndexes[genre], board -> board != null ? board.entryOf(userId) : null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${movielist.leaderboard.reload-interval-ms:600000}",
+            initialDelayString = "${movielist.leaderboard.reload-interval-ms:600000}")
+    public synchronized void reload() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            written = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long today = today();
+        List<Object[]> counts = userRepository.countWatchedMoviesPerUser();
+        List<Object[]> genreCounts = movieRepository.countWatchedPerUserAndGenreMask();
+        Instant since = Instant.ofEpochSecond((today - RING_DAYS + 1) * SECONDS_PER_DAY);
+        List<Object[]> viewings = watchEventRepository.findViewingsSince(since);
+        Boards fresh = new Boards(today);
+        fresh.load(counts, genreCounts, viewings);
+
+        // A read-only transaction takes its connection up front, so the re-read never waits
+        // for the pool while holding off the commits that occupy it
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> catchUpAndSwap(fresh, since));
+        loaded = true;
+        lastLoadMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.debug("Loaded leaderboards of {} users and {} recent viewings in {} ms, {} users re-read",
+                counts.size(), viewings.size(), lastLoadMillis, lastRereadUsers);
+    }
+
+    // A change committed after the reload's queries began may or may not be in their
+    // results, so the users written since are read again. Holding off commits meanwhile
+    // makes every change either land in that read or be applied after the swap, never both.
+    private void catchUpAndSwap(Boards fresh, Instant since) {
+        commits.writeLock().lock();
+        try {
+            List<Long> userIds;
+            lock.readLock().lock();
+            try {
+                userIds = new ArrayList<>(written);
+            } finally {
+                lock.readLock().unlock();
+            }
+            List<Object[]> rereadCounts = new ArrayList<>();
+            List<Object[]> rereadGenreCounts = new ArrayList<>();
+            List<Object[]> rereadViewings = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += REREAD_CHUNK_SIZE) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + REREAD_CHUNK_SIZE, userIds.size()));
+                rereadCounts.addAll(userRepository.countWatchedMoviesOfUsers(chunk));
+                rereadGenreCounts.addAll(movieRepository.countWatchedPerGenreMaskOfUsers(chunk));
+                rereadViewings.addAll(watchEventRepository.findViewingsOfUsersSince(chunk, since));
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Long userId : userIds) {
+                    fresh.removeUser(userId);
+                }
+                fresh.load(rereadCounts, rereadGenreCounts, rereadViewings);
+                written = null;
+                boards = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastRereadUsers = userIds.size();
+        } finally {
+            commits.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the day buckets that fell out of the windows. Reads and writes roll the
+     * windows themselves when they notice a new day; this keeps idle boards current.
+     */
+    @Scheduled(cron = "${movielist.leaderboard.roll-cron:5 0 0 * * *}", zone = "UTC")
+    public void rollToToday() {
+        long today = today();
+        lock.readLock().lock();
+        try {
+            if (boards.currentDay >= today) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            boards.rollTo(today);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("lastLoadMs", lastLoadMillis);
+        stats.put("lastReloadRereadUsers", lastRereadUsers);
+        lock.readLock().lock();
+        try {
+            stats.put("users", boards.index.size());
+            int genreBoards = 0;
+            for (RankedIndex genreIndex : boards.genreIndexes) {
+                if (genreIndex != null && genreIndex.size() > 0) {
+                    genreBoards++;
+                }
+            }
+            stats.put("genreBoards", genreBoards);
+            for (Window window : Window.values()) {
+                stats.put("activeUsers" + window.days + "d", boards.windowIndexes[window.ordinal()].size());
+            }
+            long bucketEntries = 0;
+            for (LongIntHashMap bucket : boards.dayBuckets) {
+                bucketEntries += bucket.size();
+            }
+            stats.put("dayBucketEntries", bucketEntries);
+            stats.put("currentDay", boards.currentDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private <T> T read(Function<Boards, RankedIndex> board, Function<RankedIndex, T> reader) {
+        if (!loaded) {
+            reload();
+        }
+        lock.readLock().lock();
+        try {
+            return reader.apply(board.apply(boards));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(long userId, Consumer<Boards> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(boards);
+            if (written != null) {
+                written.add(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Genre and window boards only rank users with a positive count
+    private static void addPositive(RankedIndex board, long userId, long delta) {
+        if (board.add(userId, delta) <= 0) {
+            board.remove(userId);
+        }
+    }
+
+    private static int slotOf(long day) {
+        return (int) Math.floorMod(day, (long) RING_DAYS);
+    }
+
+    private static long epochDay(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_DAY);
+    }
+
+    private static long today() {
+        return epochDay(Instant.now());
+    }
+
+    // Applies the change once the transaction commits, holding the read side of the
+    // commit fence from just before the commit until the change is applied
+    private void afterCommit(long userId, Consumer<Boards> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(userId, change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean fenced;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commits.readLock().lock();
+                fenced = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                write(userId, change);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (fenced) {
+                    commits.readLock().unlock();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.movielist.service;
+
+import com.movielist.repository.LikeRepository;
+import com.movielist.util.AfterCommit;
+import com.movielist.util.LongBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user compressed bitmap of liked movie ids, so MovieResponse.userLiked can be filled
+ * in for whole lists without touching the database. Bitmaps are loaded lazily on first use
+ * and kept current by SocialService; once more than the configured number of users are
+ * cached the oldest entries are evicted.
+ */
+@Service
+public class LikedMovieCache {
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Value("${movielist.liked-cache.max-users:10000}")
+    private int maxUsers;
+
+    private final Map<Long, LongBitmap> bitmaps = new ConcurrentHashMap<>();
+    private final Queue<Long> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public boolean isLiked(Long userId, Long movieId) {
+        LongBitmap bitmap = getOrLoad(userId);
+        synchronized (bitmap) {
+            return bitmap.contains(movieId);
+        }
+    }
+
+    /**
+     * Looks up the liked flag for many movies while holding the user's bitmap once.
+     */
+    public Map<Long, Boolean> areLiked(Long userId, Iterable<Long> movieIds) {
+        LongBitmap bitmap = getOrLoad(userId);
+        Map<Long, Boolean> liked = new LinkedHashMap<>();
+        synchronized (bitmap) {
+            for (Long movieId : movieIds) {
+                liked.put(movieId, bitmap.contains(movieId));
+            }
+        }
+        return liked;
+    }
+
+    /**
+     * Records a like once the liking transaction commits, so a rolled-back like never
+     * reaches the cache. Only users that are already cached are updated; absent users load
+     * committed state later. A load racing the commit either reads the like itself or runs
+     * inside computeIfAbsent, which this computeIfPresent waits for before adding it.
+     */
+    public void onLikedAfterCommit(Long userId, Long movieId) {
+        AfterCommit.run(() -> bitmaps.computeIfPresent(userId, (id, bitmap) -> {
+            synchronized (bitmap) {
+                bitmap.add(movieId);
+            }
+            return bitmap;
+        }));
+    }
+
+    public void onUnlikedAfterCommit(Long userId, Long movieId) {
+        AfterCommit.run(() -> bitmaps.computeIfPresent(userId, (id, bitmap) -> {
+            synchronized (bitmap) {
+                bitmap.remove(movieId);
+            }
+            return bitmap;
+        }));
+    }
+
+    public void invalidate(Long userId) {
+        // Drop the user's place in the eviction order too, or a reload would be queued twice
+        // and evicted early by its stale entry
+        bitmaps.computeIfPresent(userId, (id, bitmap) -> {
+            insertionOrder.remove(id);
+            return null;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long footprint = 0;
+        long entries = 0;
+        for (LongBitmap bitmap : bitmaps.values()) {
+            synchronized (bitmap) {
+                footprint += bitmap.sizeInBytes();
+                entries += bitmap.size();
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", bitmaps.size());
+        stats.put("maxUsers", maxUsers);
+        stats.put("likedEntries", entries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("memoryBytes", footprint);
+        return stats;
+    }
+
+    private LongBitmap getOrLoad(Long userId) {
+        LongBitmap cached = bitmaps.get(userId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        LongBitmap loaded = bitmaps.computeIfAbsent(userId, id -> {
+            LongBitmap bitmap = new LongBitmap();
+            for (Long movieId : likeRepository.findLikedMovieIdsByUserId(id)) {
+                bitmap.add(movieId);
+            }
+            insertionOrder.add(id);
+            return bitmap;
+        });
+        evictIfNeeded();
+        return loaded;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Long> oldest = insertionOrder.iterator();
+        while (bitmaps.size() > maxUsers && oldest.hasNext()) {
+            Long userId = oldest.next();
+            oldest.remove();
+            if (bitmaps.remove(userId) != null) {
+                evictions.increment();
+            }
+        }
+    }
+}
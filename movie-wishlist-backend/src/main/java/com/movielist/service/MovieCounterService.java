@@ -0,0 +1,200 @@
+package com.movielist.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for the denormalized likes_count / comments_count columns on movies.
+ * Social writes only bump an in-memory LongAdder per movie once their transaction commits;
+ * a scheduled flusher applies the accumulated deltas with one batched relative UPDATE. Reads
+ * add the pending delta on top of the persisted column, so counts are exact for this
+ * instance and never wait for a flush.
+ *
+ * <p>{@link #reconcile} recounts from the source tables. It waits for every transaction that
+ * recorded a delta to complete and holds off new ones meanwhile, so each committed like or
+ * comment is either in the recount or in a later delta, never in both or neither.
+ */
+@Service
+public class MovieCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieCounterService.class);
+
+    private static final String FLUSH_SQL =
+            "UPDATE movies SET likes_count = likes_count + ?, comments_count = comments_count + ? WHERE id = ?";
+
+    private static final String DRIFT_SQL =
+            "SELECT COUNT(*) FROM movies m WHERE m.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.movie_id = m.id) " +
+            "OR m.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.movie_id = m.id)";
+
+    private static final String RECONCILE_SQL =
+            "UPDATE movies SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.movie_id = movies.id), " +
+            "comments_count = (SELECT COUNT(*) FROM comments c WHERE c.movie_id = movies.id)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${movielist.counters.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    private final Map<Long, LongAdder> likeDeltas = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> commentDeltas = new ConcurrentHashMap<>();
+    // Held shared by writing transactions until they complete, exclusively by reconcile
+    private final ReadWriteLock writes = new ReentrantReadWriteLock();
+
+    /**
+     * Adds delta to the movie's like count once the current transaction commits.
+     */
+    public void recordLike(Long movieId, long delta) {
+        recordAfterCommit(likeDeltas, movieId, delta);
+    }
+
+    /**
+     * Adds delta to the movie's comment count once the current transaction commits.
+     */
+    public void recordComment(Long movieId, long delta) {
+        recordAfterCommit(commentDeltas, movieId, delta);
+    }
+
+    public long pendingLikes(Long movieId) {
+        LongAdder adder = likeDeltas.get(movieId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    public long pendingComments(Long movieId) {
+        LongAdder adder = commentDeltas.get(movieId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * Drops buffered deltas for a movie that no longer exists.
+     */
+    public void discard(Long movieId) {
+        likeDeltas.remove(movieId);
+        commentDeltas.remove(movieId);
+    }
+
+    @Scheduled(fixedDelayString = "${movielist.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Set<Long> movieIds = new HashSet<>(likeDeltas.keySet());
+        movieIds.addAll(commentDeltas.keySet());
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Long movieId : movieIds) {
+            // Draining removes the entry, so movies that go quiet do not stay in the maps
+            long likes = drain(likeDeltas, movieId);
+            long comments = drain(commentDeltas, movieId);
+            if (likes != 0 || comments != 0) {
+                batch.add(new Object[]{likes, comments, movieId});
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (DataAccessException e) {
+            logger.error("Failed to flush {} movie counter deltas, will retry: {}", batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                Long movieId = (Long) row[2];
+                add(likeDeltas, movieId, (Long) row[0]);
+                add(commentDeltas, movieId, (Long) row[1]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every movie's counters from the likes and comments tables.
+     *
+     * @return the number of movies whose stored counters had drifted
+     */
+    @Scheduled(cron = "${movielist.counters.reconcile-cron:0 0 4 * * *}")
+    public synchronized long reconcile() {
+        writes.writeLock().lock();
+        try {
+            flush();
+            Long drifted = jdbcTemplate.queryForObject(DRIFT_SQL, Long.class);
+            if (drifted != null && drifted > 0) {
+                logger.warn("Movie counters drifted on {} movies, rebuilding from source tables", drifted);
+                jdbcTemplate.update(RECONCILE_SQL);
+            }
+            return drifted != null ? drifted : 0L;
+        } finally {
+            writes.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (reconcileOnStartup) {
+            reconcile();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // The read lock is taken before the caller's transaction commits and kept until it
+    // completes: a recount then either misses the uncommitted row or waits for its delta
+    private void recordAfterCommit(Map<Long, LongAdder> deltas, Long movieId, long delta) {
+        writes.readLock().lock();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                add(deltas, movieId, delta);
+            } finally {
+                writes.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(deltas, movieId, delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                writes.readLock().unlock();
+            }
+        });
+    }
+
+    // Adds inside compute, so an add either reaches the entry before drain removes it or
+    // creates a new one, never an adder that was already taken out of the map
+    private static void add(Map<Long, LongAdder> deltas, Long movieId, long delta) {
+        deltas.compute(movieId, (id, adder) -> {
+            LongAdder target = adder != null ? adder : new LongAdder();
+            target.add(delta);
+            return target;
+        });
+    }
+
+    private long drain(Map<Long, LongAdder> deltas, Long movieId) {
+        LongAdder adder = deltas.remove(movieId);
+        return adder != null ? adder.sum() : 0L;
+    }
+}
@@ -0,0 +1,464 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.repository.MovieRepository;
+import com.movielist.repository.WatchEventRepository;
+import com.movielist.util.AfterCommit;
+import com.movielist.util.LongIntHashMap;
+import com.movielist.util.WatchAggregator;
+import com.movielist.util.WatchSketches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory columnar copy of the facts analytics needs about every movie. It stores the
+ * owner, genre mask, runtime, rating, status and watched month in parallel primitive
+ * arrays, so global aggregates are tight loops over arrays rather than queries that
+ * hydrate entities. The store is loaded from the database after startup and
+ * kept current by MovieService, which applies each change after its transaction commits.
+ * Until the first load finishes, {@link #isLoaded()} is false and callers fall back to
+ * SQL. Each generation of columns also maintains {@link WatchSketches} as rows change,
+ * which answer the approximate analytics mode without scanning.
+ */
+@Service
+public class MovieFactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieFactStore.class);
+
+    private static final byte EMPTY = 0;
+    private static final byte WISHLIST = 1;
+    private static final byte WATCHED = 2;
+
+    // Rows per fork-join leaf when scanning in parallel
+    private static final int SCAN_CHUNK = 1 << 16;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private WatchEventRepository watchEventRepository;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Value("${movielist.fact-store.load-page-size:10000}")
+    private int loadPageSize;
+
+    private volatile Columns current;
+    private volatile Columns building;
+    private volatile long lastLoadMillis;
+
+    /**
+     * The facts of one movie as written to the store. A null watchedMonth on an update
+     * keeps the month already stored.
+     */
+    public record MovieFact(long movieId, long userId, long genreMask, Integer runtime, Integer rating,
+                            Movie.Status status, Integer watchedMonth) {
+
+        public static MovieFact of(Movie movie, Integer watchedMonth) {
+            return new MovieFact(movie.getId(), movie.getUser().getId(), movie.getGenreMask(), movie.getRuntime(),
+                    movie.getRating(), movie.getStatus(), watchedMonth);
+        }
+    }
+
+    /**
+     * Totals of the rows matching a scan, split by status, with the watched rows
+     * aggregated per genre.
+     */
+    public record ScanResult(long wishlistCount, WatchAggregator watched, String[] genreNames) {
+    }
+
+    public boolean isLoaded() {
+        return current != null;
+    }
+
+    /**
+     * Applies the facts once the surrounding transaction commits, or immediately outside
+     * of one, so rolled-back writes never reach the store.
+     */
+    public void upsertAfterCommit(Collection<MovieFact> facts) {
+        AfterCommit.run(() -> apply(facts, MovieFact::movieId, Columns::upsert));
+    }
+
+    public void upsertAfterCommit(MovieFact fact) {
+        upsertAfterCommit(List.of(fact));
+    }
+
+    public void updateStatusAfterCommit(Collection<Long> movieIds, Movie.Status status, Integer watchedMonth) {
+        AfterCommit.run(() -> apply(movieIds, Long::longValue, (columns, id) -> columns.updateStatus(id, status, watchedMonth)));
+    }
+
+    public void removeAfterCommit(Collection<Long> movieIds) {
+        AfterCommit.run(() -> apply(movieIds, Long::longValue, Columns::remove));
+    }
+
+    /**
+     * Aggregates every movie in the store, in parallel over array ranges. There is no
+     * per-user scan: one user's movies are a range of the movies index, which beats
+     * reading every row here.
+     */
+    public ScanResult scanAll() {
+        Columns columns = current;
+        if (columns == null) {
+            throw new IllegalStateException("Movie fact store is not loaded yet");
+        }
+        columns.lock.readLock().lock();
+        try {
+            int rows = columns.rows;
+            int chunks = (rows + SCAN_CHUNK - 1) / SCAN_CHUNK;
+            long[] wishlist = new long[Math.max(1, chunks)];
+            WatchAggregator watched = IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> {
+                        int from = chunk * SCAN_CHUNK;
+                        int to = Math.min(rows, from + SCAN_CHUNK);
+                        WatchAggregator partial = new WatchAggregator();
+                        wishlist[chunk] = columns.scan(from, to, partial);
+                        return partial;
+                    })
+                    .reduce(WatchAggregator::merge)
+                    .orElseGet(WatchAggregator::new);
+
+            return new ScanResult(Arrays.stream(wishlist).sum(), watched, genreService.names());
+        } finally {
+            columns.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads every row from the database into fresh columns and swaps them in. Writes
+     * committed while the load runs are applied to both the old and the new columns, so
+     * none are lost, and replayed over any row of theirs that a page read before the write
+     * loads afterwards, so a stale page never overwrites them.
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Columns fresh = new Columns(Math.max(1024, current != null ? current.rows : 1024));
+        building = fresh;
+        try {
+            LongIntHashMap watchedMonths = new LongIntHashMap();
+            for (Object[] row : watchEventRepository.findLatestWatchedMonthPerMovie()) {
+                watchedMonths.put((Long) row[0], (Integer) row[1]);
+            }
+
+            long afterId = 0;
+            while (true) {
+                List<Object[]> page = movieRepository.findFactsAfter(afterId, PageRequest.of(0, loadPageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                fresh.lock.writeLock().lock();
+                try {
+                    for (Object[] row : page) {
+                        long movieId = (Long) row[0];
+                        int month = watchedMonths.get(movieId, WatchAggregator.NONE);
+                        fresh.upsert(new MovieFact(movieId, (Long) row[1], (Long) row[2], (Integer) row[3],
+                                (Integer) row[4], (Movie.Status) row[5], month != WatchAggregator.NONE ? month : null));
+                        List<Consumer<Columns>> changes = fresh.writtenDuringLoad.get(movieId);
+                        if (changes != null) {
+                            changes.forEach(change -> change.accept(fresh));
+                        }
+                    }
+                } finally {
+                    fresh.lock.writeLock().unlock();
+                }
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+            fresh.lock.writeLock().lock();
+            try {
+                fresh.writtenDuringLoad = null;
+            } finally {
+                fresh.lock.writeLock().unlock();
+            }
+            current = fresh;
+        } finally {
+            building = null;
+        }
+        lastLoadMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Loaded {} movie facts into the columnar store in {} ms ({} bytes/row)",
+                fresh.liveRows(), lastLoadMillis, String.format("%.1f", fresh.bytesPerRow()));
+    }
+
+    // After the watch event backfill, before the first global analytics snapshot
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Current approximate global statistics, read from the sketches in constant time.
+     */
+    public WatchSketches.Estimate estimate() {
+        Columns columns = current;
+        if (columns == null) {
+            throw new IllegalStateException("Movie fact store is not loaded yet");
+        }
+        return columns.sketches.estimate();
+    }
+
+    /**
+     * Rebuilds the sketches from the columns once rows they cannot forget have changed,
+     * so distinct counts and percentiles drift for at most one interval.
+     */
+    @Scheduled(fixedDelayString = "${movielist.fact-store.sketch-refresh-interval-ms:600000}",
+            initialDelayString = "${movielist.fact-store.sketch-refresh-interval-ms:600000}")
+    public void refreshSketches() {
+        Columns columns = current;
+        if (columns == null || columns.sketches.staleEntries() == 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        // The read lock keeps writers out, so no change lands between the scan and the swap
+        columns.lock.readLock().lock();
+        try {
+            columns.rebuildSketches();
+        } finally {
+            columns.lock.readLock().unlock();
+        }
+        logger.debug("Rebuilt analytics sketches in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Columns columns = current;
+        stats.put("loaded", columns != null);
+        stats.put("lastLoadMs", lastLoadMillis);
+        stats.put("genres", genreService.size());
+        if (columns != null) {
+            columns.lock.readLock().lock();
+            try {
+                stats.put("rows", columns.liveRows());
+                stats.put("capacity", columns.capacity());
+                stats.put("memoryBytes", columns.sizeInBytes());
+                stats.put("bytesPerRow", columns.bytesPerRow());
+                stats.put("bytesPerAllocatedRow", (double) columns.sizeInBytes() / columns.capacity());
+                stats.put("sketchBytes", columns.sketches.sizeInBytes());
+                stats.put("sketchStaleEntries", columns.sketches.staleEntries());
+            } finally {
+                columns.lock.readLock().unlock();
+            }
+        }
+        return stats;
+    }
+
+    private <T> void apply(Collection<T> items, ToLongFunction<T> movieIdOf, BiConsumer<Columns, T> change) {
+        // Read building before current: if a rebuild swaps in between, the change still
+        // reaches the columns that end up current
+        Columns next = building;
+        Columns live = current;
+        for (Columns columns : new Columns[]{live, next}) {
+            if (columns == null) {
+                continue;
+            }
+            columns.lock.writeLock().lock();
+            try {
+                for (T item : items) {
+                    change.accept(columns, item);
+                    if (columns.writtenDuringLoad != null) {
+                        columns.writtenDuringLoad.computeIfAbsent(movieIdOf.applyAsLong(item), id -> new ArrayList<>())
+                                .add(target -> change.accept(target, item));
+                    }
+                }
+            } finally {
+                columns.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The column arrays of one generation of the store, guarded by its own lock. Deleted
+     * rows are marked EMPTY and reused by later inserts.
+     */
+    private static class Columns {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongIntHashMap rowByMovieId;
+        private long[] movieIds;
+        private long[] userIds;
+        private long[] genreMasks;
+        private int[] runtimes;
+        private byte[] ratings;
+        private byte[] statuses;
+        private int[] watchedMonths;
+        private int rows;
+        private int[] freeRows = new int[16];
+        private int freeCount;
+        private volatile WatchSketches sketches = new WatchSketches();
+        // Changes applied while this generation is loaded, by movie id; each one sets the
+        // state it describes, so replaying it over a stale row is safe. Null once loaded.
+        private Map<Long, List<Consumer<Columns>>> writtenDuringLoad = new HashMap<>();
+
+        Columns(int capacity) {
+            rowByMovieId = new LongIntHashMap(capacity);
+            movieIds = new long[capacity];
+            userIds = new long[capacity];
+            genreMasks = new long[capacity];
+            runtimes = new int[capacity];
+            ratings = new byte[capacity];
+            statuses = new byte[capacity];
+            watchedMonths = new int[capacity];
+        }
+
+        void upsert(MovieFact fact) {
+            int runtime = fact.runtime() != null ? fact.runtime() : WatchAggregator.NONE;
+            byte rating = fact.rating() != null ? fact.rating().byteValue() : WatchAggregator.NONE;
+            byte status = fact.status() == Movie.Status.WATCHED ? WATCHED : WISHLIST;
+            int row = rowByMovieId.get(fact.movieId(), -1);
+            if (row < 0) {
+                row = allocateRow();
+                rowByMovieId.put(fact.movieId(), row);
+                movieIds[row] = fact.movieId();
+                watchedMonths[row] = WatchAggregator.NONE;
+            } else if (statuses[row] == status && userIds[row] == fact.userId() && genreMasks[row] == fact.genreMask()
+                    && runtimes[row] == runtime && ratings[row] == rating) {
+                // Edits to fields the store does not keep must not feed the sketches twice
+                if (fact.watchedMonth() != null) {
+                    watchedMonths[row] = fact.watchedMonth();
+                }
+                return;
+            } else {
+                retract(row);
+            }
+            userIds[row] = fact.userId();
+            genreMasks[row] = fact.genreMask();
+            runtimes[row] = runtime;
+            ratings[row] = rating;
+            statuses[row] = status;
+            record(row, sketches);
+            if (fact.watchedMonth() != null) {
+                watchedMonths[row] = fact.watchedMonth();
+            }
+        }
+
+        void updateStatus(long movieId, Movie.Status status, Integer watchedMonth) {
+            int row = rowByMovieId.get(movieId, -1);
+            if (row < 0) {
+                return;
+            }
+            byte next = status == Movie.Status.WATCHED ? WATCHED : WISHLIST;
+            if (statuses[row] == next) {
+                return;
+            }
+            if (next == WATCHED && watchedMonth != null) {
+                watchedMonths[row] = watchedMonth;
+            }
+            retract(row);
+            statuses[row] = next;
+            record(row, sketches);
+        }
+
+        void remove(long movieId) {
+            int row = rowByMovieId.get(movieId, -1);
+            if (row < 0) {
+                return;
+            }
+            rowByMovieId.remove(movieId);
+            retract(row);
+            statuses[row] = EMPTY;
+            userIds[row] = 0;
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+        }
+
+        /**
+         * Adds watched rows in [from, to) owned by userId (0 for everyone) to the
+         * aggregator and returns the number of matching wishlist rows.
+         */
+        long scan(int from, int to, WatchAggregator watched) {
+            long wishlist = 0;
+            for (int row = from; row < to; row++) {
+                byte status = statuses[row];
+                if (status == WATCHED) {
+                    watched.add(genreMasks[row], runtimes[row], ratings[row]);
+                } else if (status == WISHLIST) {
+                    wishlist++;
+                }
+            }
+            return wishlist;
+        }
+
+        void rebuildSketches() {
+            WatchSketches fresh = new WatchSketches();
+            for (int row = 0; row < rows; row++) {
+                record(row, fresh);
+            }
+            sketches = fresh;
+        }
+
+        private void record(int row, WatchSketches target) {
+            if (statuses[row] == WATCHED) {
+                target.addWatched(userIds[row], genreMasks[row], runtimes[row], ratings[row]);
+            } else if (statuses[row] == WISHLIST) {
+                target.addWishlist(1);
+            }
+        }
+
+        private void retract(int row) {
+            if (statuses[row] == WATCHED) {
+                sketches.removeWatched(genreMasks[row], runtimes[row], ratings[row]);
+            } else if (statuses[row] == WISHLIST) {
+                sketches.addWishlist(-1);
+            }
+        }
+
+        int liveRows() {
+            return rows - freeCount;
+        }
+
+        int capacity() {
+            return movieIds.length;
+        }
+
+        long sizeInBytes() {
+            int capacity = capacity();
+            return rowByMovieId.sizeInBytes() + 7 * 16L
+                    + capacity * (8L + 8L + 8L + 4L + 1L + 1L + 4L) + freeRows.length * 4L;
+        }
+
+        double bytesPerRow() {
+            int live = liveRows();
+            return live > 0 ? (double) sizeInBytes() / live : 0.0;
+        }
+
+        private int allocateRow() {
+            if (freeCount > 0) {
+                return freeRows[--freeCount];
+            }
+            if (rows == movieIds.length) {
+                int capacity = movieIds.length + (movieIds.length >> 1);
+                movieIds = Arrays.copyOf(movieIds, capacity);
+                userIds = Arrays.copyOf(userIds, capacity);
+                genreMasks = Arrays.copyOf(genreMasks, capacity);
+                runtimes = Arrays.copyOf(runtimes, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                watchedMonths = Arrays.copyOf(watchedMonths, capacity);
+            }
+            return rows++;
+        }
+    }
+}
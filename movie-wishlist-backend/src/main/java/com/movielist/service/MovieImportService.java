@@ -0,0 +1,350 @@
+package com.movielist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.entity.UserStats;
+import com.movielist.event.DomainEvent.MovieAdded;
+import com.movielist.exception.ApiException;
+import com.movielist.payload.MovieImportError;
+import com.movielist.payload.MovieImportResponse;
+import com.movielist.payload.MovieRequest;
+import com.movielist.service.MovieFactStore.MovieFact;
+import com.movielist.util.CsvReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a movie library from CSV (IMDb / Letterboxd style exports) or JSON lines.
+ * The body is parsed as a stream, each row is validated like a MovieRequest, and valid rows
+ * are persisted in chunks, each in its own transaction, with the persistence context
+ * flushed and cleared in between so memory stays bounded regardless of input size.
+ * Each chunk publishes a MovieAdded event per movie and a MovieWatched event per watched
+ * one in its transaction, as adding and marking them one by one would.
+ */
+@Service
+public class MovieImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieImportService.class);
+
+    // Accepted CSV header names per MovieRequest field, compared case-insensitively
+    private static final Map<String, String> CSV_COLUMNS = new HashMap<>();
+
+    static {
+        alias("title", "title", "name", "movie", "film");
+        alias("genre", "genre", "genres");
+        alias("releaseYear", "year", "release year", "releaseyear", "release_year");
+        alias("runtime", "runtime", "runtime (mins)", "runtime (minutes)");
+        alias("posterUrl", "poster", "poster url", "posterurl", "poster_url");
+        alias("rating", "rating", "your rating", "my rating");
+        alias("review", "review");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Autowired
+    private WatchEventService watchEventService;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Value("${movielist.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${movielist.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Value("${movielist.import.max-field-length:65536}")
+    private int maxFieldLength;
+
+    private static void alias(String field, String... headers) {
+        for (String header : headers) {
+            CSV_COLUMNS.put(header, field);
+        }
+    }
+
+    public MovieImportResponse importMovies(InputStream body, String contentType, User user) throws IOException {
+        ImportRun run = new ImportRun(user.getId());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        try {
+            if (type.startsWith("text/csv")) {
+                importCsv(reader, run);
+            } else if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+                importJsonLines(reader, run);
+            } else {
+                throw new ApiException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Import expects text/csv or application/x-ndjson, got: " + contentType);
+            }
+            run.persistPending();
+        } finally {
+            // Chunks commit on their own, so an import that fails part way still changed the stats
+            if (run.imported > 0) {
+                userStatsService.rebuild(run.userId);
+                globalAnalyticsCache.recordWrites(run.imported);
+            }
+        }
+
+        long durationMs = (System.nanoTime() - run.startedAt) / 1_000_000;
+        logger.info("Movie import for user {} finished: {} processed, {} imported, {} failed in {} ms",
+                run.userId, run.processed, run.imported, run.failed, durationMs);
+        return new MovieImportResponse(run.processed, run.imported, run.failed, durationMs, run.errors);
+    }
+
+    private void importCsv(BufferedReader reader, ImportRun run) throws IOException {
+        CsvReader csv = new CsvReader(reader, maxFieldLength);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+
+        String[] fields = new String[header.size()];
+        boolean hasTitle = false;
+        for (int i = 0; i < header.size(); i++) {
+            fields[i] = CSV_COLUMNS.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            hasTitle |= "title".equals(fields[i]);
+        }
+        if (!hasTitle) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "CSV header must include a Title or Name column");
+        }
+
+        while (true) {
+            List<String> record;
+            try {
+                record = csv.readRecord();
+            } catch (IllegalArgumentException e) {
+                run.reject(csv.getRecordLine(), e.getMessage());
+                continue;
+            }
+            if (record == null) {
+                break;
+            }
+            int line = csv.getRecordLine();
+            try {
+                run.accept(line, toMovieRequest(fields, record));
+            } catch (IllegalArgumentException e) {
+                run.reject(line, e.getMessage());
+            }
+        }
+    }
+
+    private void importJsonLines(BufferedReader reader, ImportRun run) throws IOException {
+        String text;
+        int line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                run.accept(line, objectMapper.readValue(text, MovieRequest.class));
+            } catch (JsonProcessingException e) {
+                run.reject(line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private MovieRequest toMovieRequest(String[] fields, List<String> record) {
+        MovieRequest request = new MovieRequest();
+        for (int i = 0; i < fields.length && i < record.size(); i++) {
+            String value = record.get(i).trim();
+            if (fields[i] == null || value.isEmpty()) {
+                continue;
+            }
+            switch (fields[i]) {
+                case "title" -> request.setTitle(value);
+                case "genre" -> request.setGenre(value);
+                case "releaseYear" -> request.setReleaseYear(parseInteger("year", value));
+                case "runtime" -> request.setRuntime(parseInteger("runtime", value));
+                case "posterUrl" -> request.setPosterUrl(value);
+                case "rating" -> request.setRating(parseInteger("rating", value));
+                case "review" -> request.setReview(value);
+                default -> { }
+            }
+        }
+        return request;
+    }
+
+    private Integer parseInteger(String field, String value) {
+        try {
+            // Ratings such as Letterboxd's 3.5 are rounded to the nearest whole number
+            return (int) Math.round(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private Movie toMovie(MovieRequest request) {
+        Movie movie = new Movie();
+        movie.setTitle(request.getTitle());
+        movie.setGenre(request.getGenre());
+        movie.setGenreMask(genreService.maskOf(request.getGenre()));
+        movie.setReleaseYear(request.getReleaseYear());
+        movie.setRuntime(request.getRuntime());
+        movie.setPosterUrl(request.getPosterUrl());
+        movie.setRating(request.getRating());
+        movie.setReview(request.getReview());
+        // Exports with a rating or review describe films the user has already seen
+        boolean watched = request.getRating() != null || (request.getReview() != null && !request.getReview().isBlank());
+        movie.setStatus(watched ? Movie.Status.WATCHED : Movie.Status.WISHLIST);
+        return movie;
+    }
+
+    /**
+     * Mutable state of one import: counters, capped error list and the current chunk.
+     */
+    private class ImportRun {
+        private final Long userId;
+        private final long startedAt = System.nanoTime();
+        private final List<MovieRequest> pending = new ArrayList<>();
+        private final List<Integer> pendingLines = new ArrayList<>();
+        private final List<MovieImportError> errors = new ArrayList<>();
+        private long processed;
+        private long imported;
+        private long failed;
+
+        ImportRun(Long userId) {
+            this.userId = userId;
+        }
+
+        void accept(int line, MovieRequest request) {
+            processed++;
+            Set<ConstraintViolation<MovieRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                failed++;
+                addError(line, violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            pending.add(request);
+            pendingLines.add(line);
+            if (pending.size() >= chunkSize) {
+                persistPending();
+            }
+        }
+
+        void reject(int line, String message) {
+            processed++;
+            failed++;
+            addError(line, message);
+        }
+
+        void persistPending() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                save(pending);
+                imported += pending.size();
+            } catch (DataAccessException | PersistenceException e) {
+                // One bad row rolls back the whole chunk, so find it by saving the rows one by one
+                logger.warn("Failed to save import chunk of {} rows for user {}, retrying row by row: {}",
+                        pending.size(), userId, e.getMessage());
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        save(List.of(pending.get(i)));
+                        imported++;
+                    } catch (DataAccessException | PersistenceException rowError) {
+                        failed++;
+                        addError(pendingLines.get(i), "Could not save row: " + rowError.getMessage());
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines.clear();
+            logger.info("Movie import for user {}: {} processed, {} imported, {} failed", userId, processed, imported, failed);
+        }
+
+        // Builds fresh entities on every attempt: ones persisted by a rolled-back
+        // transaction keep their ids and could not be persisted again
+        private void save(List<MovieRequest> requests) {
+            transactionTemplate.executeWithoutResult(status -> {
+                User owner = entityManager.getReference(User.class, userId);
+                Instant now = Instant.now();
+                List<Movie> movies = new ArrayList<>(requests.size());
+                List<Movie> watched = new ArrayList<>();
+                List<MovieFact> facts = new ArrayList<>(requests.size());
+                for (MovieRequest request : requests) {
+                    Movie movie = toMovie(request);
+                    movie.setUser(owner);
+                    entityManager.persist(movie);
+                    movies.add(movie);
+                    boolean isWatched = movie.getStatus() == Movie.Status.WATCHED;
+                    if (isWatched) {
+                        watched.add(movie);
+                    }
+                    facts.add(MovieFact.of(movie, isWatched ? WatchEventService.bucketOf(now) : null));
+                }
+                watchEventService.recordWatches(userId, watched, now);
+                movieFactStore.upsertAfterCommit(facts);
+                entityManager.flush();
+                for (Movie movie : movies) {
+                    eventBus.publish(new MovieAdded(userId, movie.getId(), movie.getCreatedAt()));
+                }
+                if (!watched.isEmpty()) {
+                    // The watch events carry the user's totals including this chunk
+                    UserStats stats = userStatsService.rebuild(userId);
+                    watched.forEach(movie -> eventBus.publish(MovieService.watched(userId, movie.getId(), now, stats)));
+                }
+                entityManager.clear();
+            });
+        }
+
+        private void addError(int line, String message) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new MovieImportError(line, message));
+            }
+        }
+    }
+}
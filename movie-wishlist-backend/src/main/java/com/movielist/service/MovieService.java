@@ -1,24 +1,68 @@
 package com.movielist.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
+import com.movielist.entity.UserStats;
+import com.movielist.event.DomainEvent.MovieAdded;
+import com.movielist.event.DomainEvent.MovieDeleted;
+import com.movielist.event.DomainEvent.MovieWatched;
+import com.movielist.exception.ApiException;
 import com.movielist.exception.ResourceNotFoundException;
 import com.movielist.payload.MovieRequest;
 import com.movielist.payload.MovieResponse;
+import com.movielist.payload.PageResponse;
 import com.movielist.repository.CommentRepository;
 import com.movielist.repository.LikeRepository;
 import com.movielist.repository.MovieRepository;
 import com.movielist.repository.UserRepository;
+import com.movielist.service.MovieFactStore.MovieFact;
+import com.movielist.service.UserStatsService.MovieFacts;
+import com.movielist.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MovieService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MovieService.class);
+
+    // Movies saved before updated_at was maintained
+    private static final String BACKFILL_UPDATED_AT_SQL =
+            "UPDATE movies SET updated_at = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE updated_at IS NULL";
+
+    // ddl-auto=update leaves existing columns alone, so an older table keeps a nullable one
+    private static final String REQUIRE_UPDATED_AT_SQL = "ALTER TABLE movies ALTER COLUMN updated_at SET NOT NULL";
+
     private static final String OMDB_API_KEY = "YOUR_OMDB_API_KEY"; // 🔑 Replace with your key
     private static final String OMDB_API_URL = "https://www.omdbapi.com/?apikey=" + OMDB_API_KEY;
 
@@ -35,11 +79,64 @@ public class MovieService {
     private CommentRepository commentRepository;
 
     @Autowired
-    private BadgeService badgeService;
+    private MovieCounterService movieCounterService;
+
+    @Autowired
+    private LikedMovieCache likedMovieCache;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Autowired
+    private WatchEventService watchEventService;
+
+    @Autowired
+    private MovieFactStore movieFactStore;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private DomainEventBus eventBus;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${movielist.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${movielist.pagination.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${movielist.streaming.chunk-size:200}")
+    private int streamChunkSize;
+
+    /**
+     * Gives movies without an updated_at their creation time and makes the column NOT NULL.
+     * The keyset pages compare on updated_at, so a row without one would never be listed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillUpdatedAt() {
+        int updated = jdbcTemplate.update(BACKFILL_UPDATED_AT_SQL);
+        jdbcTemplate.execute(REQUIRE_UPDATED_AT_SQL);
+        if (updated > 0) {
+            logger.info("Backfilled updated_at of {} movies", updated);
+        }
+    }
+
     // 🔍 Search movies in OMDb
     public String searchMoviesFromOmdb(String query) {
         String url = OMDB_API_URL + "&s=" + query + "&type=movie";
@@ -55,26 +152,32 @@ public class MovieService {
     // -------------------------------
     // Existing DB-based Movie Methods
     // -------------------------------
-    public List<MovieResponse> getWishlistMovies(User user) {
-        List<Movie> movies = movieRepository.findByUserAndStatus(user, Movie.Status.WISHLIST);
-        return movies.stream().map(this::convertToMovieResponse).collect(Collectors.toList());
+    public List<MovieResponse> getWishlistMovies(User user, String genre) {
+        List<Movie> movies = genre != null
+                ? findByGenre(user.getId(), Movie.Status.WISHLIST, genre)
+                : movieRepository.findByUserAndStatus(user, Movie.Status.WISHLIST);
+        return convertToMovieResponses(movies, user.getId());
     }
 
-    public List<MovieResponse> getWatchedMovies(User user) {
-        List<Movie> movies = movieRepository.findByUserAndStatus(user, Movie.Status.WATCHED);
-        return movies.stream().map(this::convertToMovieResponse).collect(Collectors.toList());
+    public List<MovieResponse> getWatchedMovies(User user, String genre) {
+        List<Movie> movies = genre != null
+                ? findByGenre(user.getId(), Movie.Status.WATCHED, genre)
+                : movieRepository.findByUserAndStatus(user, Movie.Status.WATCHED);
+        return convertToMovieResponses(movies, user.getId());
     }
 
-    public MovieResponse getMovieById(Long id) {
+    public MovieResponse getMovieById(Long id, User viewer) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", id));
-        return convertToMovieResponse(movie);
+        return convertToMovieResponse(movie, viewer.getId());
     }
 
+    @Transactional
     public MovieResponse addMovie(MovieRequest movieRequest, User user) {
         Movie movie = new Movie();
         movie.setTitle(movieRequest.getTitle());
         movie.setGenre(movieRequest.getGenre());
+        movie.setGenreMask(genreService.maskOf(movieRequest.getGenre()));
         movie.setReleaseYear(movieRequest.getReleaseYear());
         movie.setRuntime(movieRequest.getRuntime());
         movie.setPosterUrl(movieRequest.getPosterUrl());
@@ -82,9 +185,14 @@ public class MovieService {
         movie.setUser(user);
 
         Movie savedMovie = movieRepository.save(movie);
-        return convertToMovieResponse(savedMovie);
+        userStatsService.apply(user.getId(), null, MovieFacts.of(savedMovie));
+        movieFactStore.upsertAfterCommit(MovieFact.of(savedMovie, null));
+        eventBus.publish(new MovieAdded(user.getId(), savedMovie.getId(), savedMovie.getCreatedAt()));
+        globalAnalyticsCache.recordWrite();
+        return convertToMovieResponse(savedMovie, user.getId());
     }
 
+    @Transactional
     public MovieResponse updateMovie(Long id, MovieRequest movieRequest, User user) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", id));
@@ -93,8 +201,10 @@ public class MovieService {
             throw new RuntimeException("You don't have permission to update this movie");
         }
 
+        MovieFacts before = MovieFacts.of(movie);
         movie.setTitle(movieRequest.getTitle());
         movie.setGenre(movieRequest.getGenre());
+        movie.setGenreMask(genreService.maskOf(movieRequest.getGenre()));
         movie.setReleaseYear(movieRequest.getReleaseYear());
         movie.setRuntime(movieRequest.getRuntime());
         movie.setPosterUrl(movieRequest.getPosterUrl());
@@ -105,9 +215,16 @@ public class MovieService {
         }
 
         Movie updatedMovie = movieRepository.save(movie);
-        return convertToMovieResponse(updatedMovie);
+        userStatsService.apply(user.getId(), before, MovieFacts.of(updatedMovie));
+        if (updatedMovie.getStatus() == Movie.Status.WATCHED) {
+            watchEventService.updateLatestRating(user.getId(), updatedMovie.getId(), updatedMovie.getRating());
+        }
+        movieFactStore.upsertAfterCommit(MovieFact.of(updatedMovie, null));
+        globalAnalyticsCache.recordWrite();
+        return convertToMovieResponse(updatedMovie, user.getId());
     }
 
+    @Transactional
     public MovieResponse markAsWatched(Long id, Integer rating, String review, User user) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", id));
@@ -116,17 +233,24 @@ public class MovieService {
             throw new RuntimeException("You don't have permission to update this movie");
         }
 
+        MovieFacts before = MovieFacts.of(movie);
         movie.setStatus(Movie.Status.WATCHED);
         movie.setRating(rating);
         movie.setReview(review);
 
         Movie updatedMovie = movieRepository.save(movie);
-
-        badgeService.checkAndAwardBadges(user);
-
-        return convertToMovieResponse(updatedMovie);
+        UserStats stats = userStatsService.apply(user.getId(), before, MovieFacts.of(updatedMovie));
+        // Every call is a viewing, so marking an already watched movie records a rewatch
+        Instant now = Instant.now();
+        watchEventService.recordWatch(user.getId(), updatedMovie, now);
+        movieFactStore.upsertAfterCommit(MovieFact.of(updatedMovie, WatchEventService.bucketOf(now)));
+        eventBus.publish(watched(user.getId(), updatedMovie.getId(), now, stats));
+        globalAnalyticsCache.recordWrite();
+
+        return convertToMovieResponse(updatedMovie, user.getId());
     }
 
+    @Transactional
     public void deleteMovie(Long id, User user) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", id));
@@ -135,28 +259,223 @@ public class MovieService {
             throw new RuntimeException("You don't have permission to delete this movie");
         }
 
+        MovieFacts before = MovieFacts.of(movie);
         movieRepository.delete(movie);
+        userStatsService.apply(user.getId(), before, null);
+        movieFactStore.removeAfterCommit(List.of(id));
+        eventBus.publish(new MovieDeleted(user.getId(), id));
+        globalAnalyticsCache.recordWrite();
+        movieCounterService.discard(id);
+    }
+
+    /**
+     * Marks many movies as watched with one ownership query and one bulk UPDATE, then
+     * publishes a watch event per movie carrying the user's final totals. Bulk statements
+     * bypass the entities, so the user's stats row is rebuilt rather than adjusted.
+     */
+    @Transactional
+    public int batchMarkAsWatched(List<Long> ids, Integer rating, String review, User user) {
+        Set<Long> movieIds = requireOwnedMovies(ids, user);
+        Instant now = Instant.now();
+        int updated = movieRepository.markWatchedByIds(movieIds, rating, review, now);
+        UserStats stats = userStatsService.rebuild(user.getId());
+        List<Movie> watched = movieRepository.findAllById(movieIds);
+        watchEventService.recordWatches(user.getId(), watched, now);
+        movieFactStore.upsertAfterCommit(watched.stream()
+                .map(movie -> MovieFact.of(movie, WatchEventService.bucketOf(now)))
+                .collect(Collectors.toList()));
+        watched.forEach(movie -> eventBus.publish(watched(user.getId(), movie.getId(), now, stats)));
+        globalAnalyticsCache.recordWrites(updated);
+        return updated;
+    }
+
+    @Transactional
+    public int batchUpdateStatus(List<Long> ids, Movie.Status status, User user) {
+        Set<Long> movieIds = requireOwnedMovies(ids, user);
+        // Only movies moving onto the watched list count as a viewing
+        List<Movie> newlyWatched = status == Movie.Status.WATCHED
+                ? movieRepository.findAllById(movieIds).stream()
+                        .filter(movie -> movie.getStatus() != Movie.Status.WATCHED)
+                        .collect(Collectors.toList())
+                : List.of();
+        Instant now = Instant.now();
+        int updated = movieRepository.updateStatusByIds(movieIds, status, now);
+        UserStats stats = userStatsService.rebuild(user.getId());
+        watchEventService.recordWatches(user.getId(), newlyWatched, now);
+        movieFactStore.updateStatusAfterCommit(movieIds, status, WatchEventService.bucketOf(now));
+        newlyWatched.forEach(movie -> eventBus.publish(watched(user.getId(), movie.getId(), now, stats)));
+        globalAnalyticsCache.recordWrites(updated);
+        return updated;
+    }
+
+    /**
+     * Deletes many movies with bulk DELETEs. Bulk statements skip the JPA cascade, so the
+     * movies' likes and comments are removed explicitly first.
+     */
+    @Transactional
+    public int batchDeleteMovies(List<Long> ids, User user) {
+        Set<Long> movieIds = requireOwnedMovies(ids, user);
+        likeRepository.deleteByMovieIds(movieIds);
+        commentRepository.deleteByMovieIds(movieIds);
+        int deleted = movieRepository.deleteByIds(movieIds);
+        userStatsService.rebuild(user.getId());
+        movieFactStore.removeAfterCommit(movieIds);
+        movieIds.forEach(id -> eventBus.publish(new MovieDeleted(user.getId(), id)));
+        globalAnalyticsCache.recordWrites(deleted);
+        movieIds.forEach(movieCounterService::discard);
+        return deleted;
+    }
+
+    static MovieWatched watched(long userId, long movieId, Instant at, UserStats stats) {
+        return new MovieWatched(userId, movieId, at,
+                stats.getWatchedCount() != null ? stats.getWatchedCount() : 0,
+                stats.getRuntimeSum() != null ? stats.getRuntimeSum() : 0);
+    }
+
+    private Set<Long> requireOwnedMovies(List<Long> ids, User user) {
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Movie ids must not be null");
+        }
+        Set<Long> movieIds = new HashSet<>(ids);
+        List<Long> owned = movieRepository.findOwnedIds(movieIds, user.getId());
+        if (owned.size() != movieIds.size()) {
+            Set<Long> rejected = new TreeSet<>(movieIds);
+            owned.forEach(rejected::remove);
+            throw new ApiException(HttpStatus.FORBIDDEN,
+                    "You don't have permission to update these movies or they do not exist: " + rejected);
+        }
+        return movieIds;
     }
 
-    public List<MovieResponse> getUserMovies(Long userId, Movie.Status status) {
+    public List<MovieResponse> getUserMovies(Long userId, Movie.Status status, String genre, User viewer) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
 
         List<Movie> movies;
-        if (status != null) {
+        if (genre != null) {
+            movies = findByGenre(userId, status, genre);
+        } else if (status != null) {
             movies = movieRepository.findByUserAndStatus(user, status);
         } else {
             movies = movieRepository.findByUser(user);
         }
 
-        return movies.stream().map(this::convertToMovieResponse).collect(Collectors.toList());
+        return convertToMovieResponses(movies, viewer.getId());
+    }
+
+    /**
+     * Movies having any of the comma-separated genres, matched with a bitwise AND on
+     * genre_mask. Names that are not in the genre dictionary match nothing.
+     */
+    private List<Movie> findByGenre(Long userId, Movie.Status status, String genre) {
+        long genreMask = genreService.maskOf(genre);
+        if (genreMask == 0) {
+            return List.of();
+        }
+        return status != null
+                ? movieRepository.findByUserIdAndStatusAndAnyGenre(userId, status, genreMask)
+                : movieRepository.findByUserIdAndAnyGenre(userId, genreMask);
+    }
+
+    /**
+     * Returns one page of a user's movies, newest first. Pass the {@code next} cursor of
+     * the previous page to continue; a null cursor starts from the beginning.
+     */
+    public PageResponse<MovieResponse> getUserMoviesPage(Long userId, Movie.Status status, String cursor, Integer size, User viewer) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
+
+        int pageSize = resolvePageSize(size);
+        // Fetch one extra row to know whether another page exists
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<Movie> movies;
+        if (cursor == null || cursor.isEmpty()) {
+            movies = status != null
+                    ? movieRepository.findFirstPageByUserIdAndStatus(userId, status, limit)
+                    : movieRepository.findFirstPageByUserId(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            movies = status != null
+                    ? movieRepository.findPageByUserIdAndStatusAfter(userId, status, after.updatedAt(), after.id(), limit)
+                    : movieRepository.findPageByUserIdAfter(userId, after.updatedAt(), after.id(), limit);
+        }
+
+        String next = null;
+        if (movies.size() > pageSize) {
+            movies = movies.subList(0, pageSize);
+            Movie last = movies.get(pageSize - 1);
+            next = new KeysetCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        return new PageResponse<>(convertToMovieResponses(movies, viewer.getId()), next);
+    }
+
+    /**
+     * Writes all of a user's movies as newline-delimited JSON while reading them from a
+     * database cursor. Rows are converted and flushed in chunks and then detached, so heap
+     * use does not grow with the size of the library.
+     */
+    @Transactional(readOnly = true)
+    public void streamUserMovies(Long userId, Movie.Status status, Long viewerId, OutputStream out) throws IOException {
+        try (Stream<Movie> movies = status != null
+                ? movieRepository.streamByUserIdAndStatus(userId, status)
+                : movieRepository.streamByUserId(userId)) {
+            List<Movie> chunk = new ArrayList<>(streamChunkSize);
+            Iterator<Movie> iterator = movies.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == streamChunkSize) {
+                    writeChunk(chunk, viewerId, out);
+                }
+            }
+            writeChunk(chunk, viewerId, out);
+        }
+    }
+
+    private void writeChunk(List<Movie> chunk, Long viewerId, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (MovieResponse response : convertToMovieResponses(chunk, viewerId)) {
+            out.write(objectMapper.writeValueAsBytes(response));
+            out.write('\n');
+        }
+        out.flush();
+        chunk.forEach(entityManager::detach);
+        chunk.clear();
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    /**
+     * Converts a list of movies, looking up whether the viewer liked each of them in one
+     * batch instead of once per movie.
+     */
+    private List<MovieResponse> convertToMovieResponses(List<Movie> movies, Long viewerId) {
+        List<Long> movieIds = movies.stream().map(Movie::getId).collect(Collectors.toList());
+        Map<Long, Boolean> liked = likedMovieCache.areLiked(viewerId, movieIds);
+        return movies.stream()
+                .map(movie -> convertToMovieResponse(movie, liked.get(movie.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private MovieResponse convertToMovieResponse(Movie movie, Long viewerId) {
+        return convertToMovieResponse(movie, likedMovieCache.isLiked(viewerId, movie.getId()));
     }
 
-    private MovieResponse convertToMovieResponse(Movie movie) {
+    private MovieResponse convertToMovieResponse(Movie movie, boolean userLiked) {
         MovieResponse response = new MovieResponse();
         response.setId(movie.getId());
         response.setTitle(movie.getTitle());
         response.setGenre(movie.getGenre());
+        response.setGenres(genreService.namesOf(movie.getGenreMask()));
         response.setReleaseYear(movie.getReleaseYear());
         response.setRuntime(movie.getRuntime());
         response.setPosterUrl(movie.getPosterUrl());
@@ -166,10 +485,11 @@ public class MovieService {
         response.setUserId(movie.getUser().getId());
         response.setUsername(movie.getUser().getUsername());
 
-        response.setLikesCount(likeRepository.countLikesByMovieId(movie.getId()));
-        response.setCommentsCount(commentRepository.countCommentsByMovieId(movie.getId()));
+        // Denormalized counters plus whatever has not been flushed yet
+        response.setLikesCount(movie.getLikesCount() + movieCounterService.pendingLikes(movie.getId()));
+        response.setCommentsCount(movie.getCommentsCount() + movieCounterService.pendingComments(movie.getId()));
 
-        response.setUserLiked(false);
+        response.setUserLiked(userLiked);
 
         return response;
     }
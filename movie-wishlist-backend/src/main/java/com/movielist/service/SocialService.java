@@ -4,6 +4,9 @@ import com.movielist.entity.Comment;
 import com.movielist.entity.Like;
 import com.movielist.entity.Movie;
 import com.movielist.entity.User;
+import com.movielist.event.DomainEvent.CommentAdded;
+import com.movielist.event.DomainEvent.MovieLiked;
+import com.movielist.event.DomainEvent.MovieUnliked;
 import com.movielist.exception.ResourceNotFoundException;
 import com.movielist.payload.CommentRequest;
 import com.movielist.payload.CommentResponse;
@@ -11,8 +14,14 @@ import com.movielist.repository.CommentRepository;
 import com.movielist.repository.LikeRepository;
 import com.movielist.repository.MovieRepository;
 import com.movielist.repository.UserRepository;
+import com.movielist.util.SequenceBlockAllocator;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.LocalDateTime;
 
@@ -35,31 +44,77 @@ public class SocialService {
     @Autowired
     private UserRepository userRepository;
 
-    public void likeMovie(Long movieId, User user) {
-        Movie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", movieId));
-        
-        if (likeRepository.existsByUserAndMovie(user, movie)) {
-            throw new RuntimeException("You have already liked this movie");
+    @Autowired
+    private MovieCounterService movieCounterService;
+
+    @Autowired
+    private LikedMovieCache likedMovieCache;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SequenceBlockAllocator likeIds;
+
+    @PostConstruct
+    void initLikeIds() {
+        likeIds = new SequenceBlockAllocator(jdbcTemplate, Like.class);
+    }
+
+    /**
+     * Likes the movie with a single insert that does nothing when the user already likes
+     * it, so repeating a like is harmless and concurrent likes cannot create duplicates.
+     *
+     * @return whether the like is new
+     */
+    @Transactional
+    public boolean likeMovie(Long movieId, User user) {
+        long id = likeIds.next();
+        int inserted;
+        try {
+            inserted = likeRepository.insertIfAbsent(id, user.getId(), movieId);
+        } catch (DataIntegrityViolationException e) {
+            // Repeats never get here, so the movie_id foreign key failed
+            throw new ResourceNotFoundException("Movie", "id", movieId);
         }
-        
-        Like like = new Like();
-        like.setUser(user);
-        like.setMovie(movie);
-        
-        likeRepository.save(like);
+        if (inserted == 0) {
+            // The statement cannot name its conflict, so tell a repeat from a taken id: the
+            // id was ours alone, and any row holding it means the sequence is behind the table
+            if (likeRepository.existsById(id)) {
+                throw new IllegalStateException("Like id " + id + " is already taken; likes_seq is behind the likes table");
+            }
+            return false;
+        }
+        movieCounterService.recordLike(movieId, 1);
+        likedMovieCache.onLikedAfterCommit(user.getId(), movieId);
+        eventBus.publish(new MovieLiked(user.getId(), movieId, Instant.now()));
+        globalAnalyticsCache.recordWrite();
+        return true;
     }
 
-    public void unlikeMovie(Long movieId, User user) {
-        Movie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", movieId));
-        
-        Like like = likeRepository.findByUserAndMovie(user, movie)
-                .orElseThrow(() -> new RuntimeException("You have not liked this movie"));
-        
-        likeRepository.delete(like);
+    /**
+     * Removes the user's like of the movie, if any, with a single delete by key.
+     *
+     * @return whether there was a like to remove
+     */
+    @Transactional
+    public boolean unlikeMovie(Long movieId, User user) {
+        if (likeRepository.deleteByUserIdAndMovieId(user.getId(), movieId) == 0) {
+            return false;
+        }
+        movieCounterService.recordLike(movieId, -1);
+        likedMovieCache.onUnlikedAfterCommit(user.getId(), movieId);
+        eventBus.publish(new MovieUnliked(user.getId(), movieId));
+        globalAnalyticsCache.recordWrite();
+        return true;
     }
 
+    @Transactional
     public CommentResponse addComment(Long movieId, CommentRequest commentRequest, User user) {
         Movie movie = movieRepository.findById(movieId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie", "id", movieId));
@@ -71,6 +126,10 @@ public class SocialService {
         comment.setMovie(movie);
         
         Comment savedComment = commentRepository.save(comment);
+        movieCounterService.recordComment(movieId, 1);
+        eventBus.publish(new CommentAdded(user.getId(), movieId, savedComment.getId(),
+                savedComment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()));
+        globalAnalyticsCache.recordWrite();
         
         return convertToCommentResponse(savedComment);
     }
@@ -86,6 +145,7 @@ public class SocialService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public void deleteComment(Long commentId, User user) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
@@ -96,6 +156,8 @@ public class SocialService {
         }
         
         commentRepository.delete(comment);
+        movieCounterService.recordComment(comment.getMovie().getId(), -1);
+        globalAnalyticsCache.recordWrite();
     }
 
     public List<Long> getUserLikedMovies(Long userId) {
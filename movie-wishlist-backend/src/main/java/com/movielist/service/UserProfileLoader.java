@@ -0,0 +1,97 @@
+package com.movielist.service;
+
+import com.movielist.entity.User;
+import com.movielist.payload.UserProfileResponse;
+import com.movielist.repository.BadgeRepository;
+import com.movielist.repository.UserStatsRepository;
+import com.movielist.repository.projection.UserBadge;
+import com.movielist.repository.projection.UserProfileTotals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds user profiles for many users at once. Watch totals and follow counts come from
+ * the user_stats rows and badges from one more query, per chunk of ids, so a list of N
+ * users costs two queries per {@value #CHUNK_SIZE} users instead of five per user. Users
+ * that have no user_stats row yet get theirs built together, in one batch per chunk.
+ */
+@Service
+public class UserProfileLoader {
+
+    // Keeps the IN lists well under database bind-parameter limits
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private BadgeRepository badgeRepository;
+
+    public UserProfileResponse load(User user) {
+        return load(List.of(user)).get(0);
+    }
+
+    /**
+     * Profiles of the given users, in the same order.
+     */
+    public List<UserProfileResponse> load(List<User> users) {
+        List<UserProfileResponse> profiles = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += CHUNK_SIZE) {
+            profiles.addAll(loadChunk(users.subList(from, Math.min(from + CHUNK_SIZE, users.size()))));
+        }
+        return profiles;
+    }
+
+    private List<UserProfileResponse> loadChunk(List<User> users) {
+        List<Long> userIds = users.stream().map(User::getId).distinct().collect(Collectors.toList());
+
+        Map<Long, UserProfileTotals> totals = new HashMap<>();
+        for (UserProfileTotals userTotals : userStatsRepository.findProfileTotalsByUserIds(userIds)) {
+            totals.put(userTotals.userId(), userTotals);
+        }
+        // Users without a stats row yet get theirs built on first read, the whole chunk at once
+        List<Long> missing = userIds.stream().filter(userId -> !totals.containsKey(userId)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            for (UserProfileTotals userTotals : userStatsService.createMissing(missing)) {
+                totals.put(userTotals.userId(), userTotals);
+            }
+        }
+        Map<Long, List<String>> badges = new HashMap<>();
+        for (UserBadge badge : badgeRepository.findNamesByUserIds(userIds)) {
+            badges.computeIfAbsent(badge.userId(), id -> new ArrayList<>()).add(badge.badgeName());
+        }
+
+        List<UserProfileResponse> profiles = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserProfileResponse response = new UserProfileResponse();
+            response.setId(user.getId());
+            response.setUsername(user.getUsername());
+            response.setEmail(user.getEmail());
+            response.setFavoriteGenre(user.getFavoriteGenre());
+            response.setProfilePictureUrl(user.getProfilePictureUrl());
+            response.setRole(user.getRole());
+
+            UserProfileTotals userTotals = totals.get(user.getId());
+            response.setMoviesWatchedCount(userTotals.watchedCount());
+            response.setTotalWatchTime(userTotals.runtimeSum());
+            response.setFollowersCount(userTotals.followersCount());
+            response.setFollowingCount(userTotals.followingCount());
+
+            response.setBadges(badges.getOrDefault(user.getId(), new ArrayList<>()));
+
+            // Whether the current user follows this one is set by callers that know it
+            response.setIsFollowing(false);
+            profiles.add(response);
+        }
+        return profiles;
+    }
+}
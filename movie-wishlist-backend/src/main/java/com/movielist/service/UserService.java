@@ -1,19 +1,32 @@
 package com.movielist.service;
 
-import com.movielist.entity.Badge;
 import com.movielist.entity.Follow;
 import com.movielist.entity.User;
+import com.movielist.exception.ApiException;
 import com.movielist.exception.ResourceNotFoundException;
+import com.movielist.payload.FollowStatusResponse;
+import com.movielist.payload.FollowSuggestionResponse;
+import com.movielist.payload.LeaderboardEntryResponse;
+import com.movielist.payload.PageResponse;
 import com.movielist.payload.UserProfileRequest;
 import com.movielist.payload.UserProfileResponse;
-import com.movielist.repository.BadgeRepository;
 import com.movielist.repository.FollowRepository;
-import com.movielist.repository.MovieRepository;
 import com.movielist.repository.UserRepository;
+import com.movielist.util.FollowGraph;
+import com.movielist.util.IdCursor;
+import com.movielist.util.RankedIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,10 +39,31 @@ public class UserService {
     private FollowRepository followRepository;
 
     @Autowired
-    private MovieRepository movieRepository;
+    private UserProfileLoader userProfileLoader;
 
     @Autowired
-    private BadgeRepository badgeRepository;
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private GlobalAnalyticsCache globalAnalyticsCache;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Value("${movielist.leaderboard.top-size:10}")
+    private int leaderboardTopSize;
+
+    @Value("${movielist.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${movielist.pagination.max-size:500}")
+    private int maxPageSize;
 
     // Authentication removed; passwords are stored as plain strings if set
 
@@ -47,7 +81,10 @@ public class UserService {
                     // store a placeholder password to satisfy non-null constraint
                     user.setPassword("guest");
                     user.setRole(User.Role.USER);
-                    return userRepository.save(user);
+                    User saved = userRepository.save(user);
+                    userStatsService.createFor(saved.getId());
+                    leaderboardService.addUserAfterCommit(saved.getId());
+                    return saved;
                 });
     }
 
@@ -82,6 +119,7 @@ public class UserService {
         return convertToUserProfileResponse(updatedUser);
     }
 
+    @Transactional
     public void followUser(String followerUsername, String followingUsername) {
         if (followerUsername.equals(followingUsername)) {
             throw new RuntimeException("You cannot follow yourself");
@@ -93,7 +131,7 @@ public class UserService {
         User following = userRepository.findByUsername(followingUsername)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", followingUsername));
         
-        if (followRepository.existsByFollowerIdAndFollowingId(follower.getId(), following.getId())) {
+        if (followGraphService.isFollowing(follower.getId(), following.getId())) {
             throw new RuntimeException("You are already following this user");
         }
         
@@ -101,9 +139,13 @@ public class UserService {
         follow.setFollowerId(follower.getId());
         follow.setFollowingId(following.getId());
         
-        followRepository.save(follow);
+        Follow saved = followRepository.save(follow);
+        userStatsService.applyFollow(follower.getId(), following.getId(), 1);
+        followGraphService.addAfterCommit(saved.getId(), follower.getId(), following.getId());
+        globalAnalyticsCache.recordWrite();
     }
 
+    @Transactional
     public void unfollowUser(String followerUsername, String followingUsername) {
         User follower = userRepository.findByUsername(followerUsername)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", followerUsername));
@@ -115,6 +157,96 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("You are not following this user"));
         
         followRepository.delete(follow);
+        userStatsService.applyFollow(follower.getId(), following.getId(), -1);
+        followGraphService.removeAfterCommit(follower.getId(), following.getId());
+        globalAnalyticsCache.recordWrite();
+    }
+
+    /**
+     * How the user and another user follow each other, answered from the follow graph.
+     */
+    public FollowStatusResponse getFollowStatus(String username, String otherUsername) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+        User other = userRepository.findByUsername(otherUsername)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", otherUsername));
+        boolean following = followGraphService.isFollowing(user.getId(), other.getId());
+        boolean followedBy = followGraphService.isFollowing(other.getId(), user.getId());
+        return new FollowStatusResponse(other.getUsername(), following, followedBy, following && followedBy);
+    }
+
+    /**
+     * Users followed by the users this user follows, most connected first.
+     */
+    public List<FollowSuggestionResponse> getFollowSuggestions(String username, Integer limit) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+        List<FollowGraph.Suggestion> suggestions = followGraphService.suggest(user.getId(), resolvePageSize(limit));
+        Map<Long, User> users = userRepository.findAllById(suggestions.stream().map(FollowGraph.Suggestion::userId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<FollowGraph.Suggestion> found = suggestions.stream()
+                .filter(suggestion -> users.containsKey(suggestion.userId()))
+                .collect(Collectors.toList());
+        List<UserProfileResponse> profiles = userProfileLoader.load(found.stream()
+                .map(suggestion -> users.get(suggestion.userId()))
+                .collect(Collectors.toList()));
+        List<FollowSuggestionResponse> response = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            response.add(new FollowSuggestionResponse(found.get(i).via(), profiles.get(i)));
+        }
+        return response;
+    }
+
+    /**
+     * One page of the user's followers in id order. Pass the {@code next} cursor of the
+     * previous page to continue. The total is the maintained follower count, which may
+     * have moved on by the time the last page is read.
+     */
+    public PageResponse<UserProfileResponse> getFollowersPage(String username, String cursor, Integer size) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+        int pageSize = resolvePageSize(size);
+        List<Long> ids = followRepository.findFollowerIdsPage(user.getId(), afterId(cursor), PageRequest.of(0, pageSize + 1));
+        return toUserPage(ids, pageSize, userStatsService.getStats(user.getId()).getFollowersCount());
+    }
+
+    /**
+     * One page of the users that the user follows, in id order, as for {@link #getFollowersPage}.
+     */
+    public PageResponse<UserProfileResponse> getFollowingPage(String username, String cursor, Integer size) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+        int pageSize = resolvePageSize(size);
+        List<Long> ids = followRepository.findFollowingIdsPage(user.getId(), afterId(cursor), PageRequest.of(0, pageSize + 1));
+        return toUserPage(ids, pageSize, userStatsService.getStats(user.getId()).getFollowingCount());
+    }
+
+    // Ids were fetched one past the page size to tell whether another page follows
+    private PageResponse<UserProfileResponse> toUserPage(List<Long> ids, int pageSize, Long total) {
+        String next = null;
+        if (ids.size() > pageSize) {
+            ids = ids.subList(0, pageSize);
+            next = new IdCursor(ids.get(ids.size() - 1)).encode();
+        }
+        Map<Long, User> users = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> ordered = ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageResponse<>(userProfileLoader.load(ordered), next, total);
+    }
+
+    private static long afterId(String cursor) {
+        return cursor == null || cursor.isEmpty() ? 0L : IdCursor.decode(cursor).id();
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
     }
 
     public List<UserProfileResponse> getFollowers(String username) {
@@ -124,9 +256,7 @@ public class UserService {
         List<Long> followerIds = followRepository.findFollowerIdsByFollowingId(user.getId());
         List<User> followers = userRepository.findAllById(followerIds);
         
-        return followers.stream()
-                .map(this::convertToUserProfileResponse)
-                .collect(Collectors.toList());
+        return userProfileLoader.load(followers);
     }
 
     public List<UserProfileResponse> getFollowing(String username) {
@@ -136,48 +266,115 @@ public class UserService {
         List<Long> followingIds = followRepository.findFollowingIdsByFollowerId(user.getId());
         List<User> following = userRepository.findAllById(followingIds);
         
-        return following.stream()
-                .map(this::convertToUserProfileResponse)
-                .collect(Collectors.toList());
+        return userProfileLoader.load(following);
     }
 
+    /**
+     * The top users by watched movies. Ranking comes from the in-memory leaderboard, so
+     * only these users are loaded and converted.
+     */
     public List<UserProfileResponse> getLeaderboard() {
-        List<User> users = userRepository.findAll();
-        
-        return users.stream()
-                .map(this::convertToUserProfileResponse)
-                .sorted((u1, u2) -> Long.compare(u2.getMoviesWatchedCount(), u1.getMoviesWatchedCount()))
-                .limit(10) // Top 10 users
+        return hydrate(leaderboardService.page(0, leaderboardTopSize)).stream()
+                .map(LeaderboardEntryResponse::getUser)
                 .collect(Collectors.toList());
     }
 
-    private UserProfileResponse convertToUserProfileResponse(User user) {
-        UserProfileResponse response = new UserProfileResponse();
-        response.setId(user.getId());
-        response.setUsername(user.getUsername());
-        response.setEmail(user.getEmail());
-        response.setFavoriteGenre(user.getFavoriteGenre());
-        response.setProfilePictureUrl(user.getProfilePictureUrl());
-        response.setRole(user.getRole());
-        
-        // Count movies watched and total watch time
-        response.setMoviesWatchedCount(movieRepository.countWatchedMoviesByUserId(user.getId()));
-        response.setTotalWatchTime(movieRepository.calculateTotalWatchTimeByUserId(user.getId()));
-        
-        // Count followers and following
-        response.setFollowersCount(followRepository.countFollowersByUserId(user.getId()));
-        response.setFollowingCount(followRepository.countFollowingByUserId(user.getId()));
-        
-        // Get badges
-        List<String> badges = badgeRepository.findByUserId(user.getId()).stream()
-                .map(Badge::getBadgeName)
+    /**
+     * One page of a leaderboard, 0-based, with each user's rank and count. Without a
+     * window or genre this is the all-time board of watched movies; with windowDays (7 or
+     * 30) it ranks viewings in that many recent days, and with a genre it ranks watched
+     * movies of that genre. An unknown genre has an empty board.
+     */
+    public List<LeaderboardEntryResponse> getLeaderboardPage(Integer page, Integer size, Integer windowDays, String genre) {
+        if (page != null && page < 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Page must not be negative: " + page);
+        }
+        LeaderboardService.Window window = resolveWindow(windowDays, genre);
+        int pageSize = resolvePageSize(size);
+        long offset = (long) (page != null ? page : 0) * pageSize;
+        if (offset > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        if (genre != null) {
+            int genreBit = resolveGenre(genre);
+            return genreBit < 0 ? List.of() : hydrate(leaderboardService.genrePage(genreBit, (int) offset, pageSize));
+        }
+        if (window != null) {
+            return hydrate(leaderboardService.page(window, (int) offset, pageSize));
+        }
+        return hydrate(leaderboardService.page((int) offset, pageSize));
+    }
+
+    /**
+     * The user's place on the board selected as in {@link #getLeaderboardPage}. A user who
+     * is not on the board, such as one with no viewings in the window, has no rank and a
+     * count of 0.
+     */
+    public LeaderboardEntryResponse getLeaderboardRank(Long userId, Integer windowDays, String genre) {
+        LeaderboardService.Window window = resolveWindow(windowDays, genre);
+        RankedIndex.Entry entry;
+        if (genre != null) {
+            int genreBit = resolveGenre(genre);
+            entry = genreBit < 0 ? null : leaderboardService.genreRankOf(genreBit, userId);
+        } else if (window != null) {
+            entry = leaderboardService.rankOf(window, userId);
+        } else {
+            entry = leaderboardService.rankOf(userId);
+        }
+        if (entry != null) {
+            List<LeaderboardEntryResponse> hydrated = hydrate(List.of(entry));
+            if (!hydrated.isEmpty()) {
+                return hydrated.get(0);
+            }
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        return new LeaderboardEntryResponse(null, 0L, convertToUserProfileResponse(user));
+    }
+
+    private LeaderboardService.Window resolveWindow(Integer windowDays, String genre) {
+        if (windowDays == null) {
+            return null;
+        }
+        if (genre != null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Genre leaderboards are all-time; pass either window or genre");
+        }
+        LeaderboardService.Window window = LeaderboardService.Window.ofDays(windowDays);
+        if (window == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Leaderboard window must be 7 or 30 days, got: " + windowDays);
+        }
+        return window;
+    }
+
+    // Bit of the named genre, or -1 if no movie has it
+    private int resolveGenre(String genre) {
+        long mask = genreService.maskOf(genre);
+        if (Long.bitCount(mask) > 1) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Leaderboards are per genre; pass a single genre");
+        }
+        return mask == 0 ? -1 : Long.numberOfTrailingZeros(mask);
+    }
+
+    // Loads the ranked users in one query and keeps the leaderboard order
+    private List<LeaderboardEntryResponse> hydrate(List<RankedIndex.Entry> entries) {
+        Map<Long, User> users = userRepository.findAllById(entries.stream().map(RankedIndex.Entry::id).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<RankedIndex.Entry> found = entries.stream()
+                .filter(entry -> users.containsKey(entry.id()))
                 .collect(Collectors.toList());
-        response.setBadges(badges);
-        
-        // Check if current user is following this user
-        // This will be set in the controller if needed
-        response.setIsFollowing(false);
-        
+        List<UserProfileResponse> profiles = userProfileLoader.load(found.stream()
+                .map(entry -> users.get(entry.id()))
+                .collect(Collectors.toList()));
+        List<LeaderboardEntryResponse> response = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            RankedIndex.Entry entry = found.get(i);
+            response.add(new LeaderboardEntryResponse(entry.rank(), entry.score(), profiles.get(i)));
+        }
         return response;
     }
-}
\ No newline at end of file
+
+    private UserProfileResponse convertToUserProfileResponse(User user) {
+        return userProfileLoader.load(user);
+    }
+}
@@ -0,0 +1,343 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.UserStats;
+import com.movielist.exception.ResourceNotFoundException;
+import com.movielist.repository.FollowRepository;
+import com.movielist.repository.MovieRepository;
+import com.movielist.repository.UserRepository;
+import com.movielist.repository.UserStatsRepository;
+import com.movielist.repository.projection.GenreMaskAggregate;
+import com.movielist.repository.projection.StatusCount;
+import com.movielist.repository.projection.UserProfileTotals;
+import com.movielist.repository.projection.WatchSums;
+import com.movielist.util.GenreDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains the user_stats row of each user. Movie writes call {@link #apply} in their own
+ * transaction with the movie's facts before and after the change, so the stored totals move
+ * by exactly that delta under a row lock. Bulk writes and imports, which bypass the entity,
+ * call {@link #rebuild} instead. Follows and unfollows move the follow counts through
+ * {@link #applyFollow}.
+ *
+ * <p>Rows are created with the user through {@link #createFor}. Users that predate the table
+ * get theirs on first use, inserted if absent and only then locked, so concurrent first
+ * writers queue on the same row instead of racing to insert it.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private static final String BACKFILL_FOLLOW_COUNTS_SQL =
+            "UPDATE user_stats SET " +
+            "followers_count = (SELECT COUNT(*) FROM follows f WHERE f.following_id = user_stats.user_id), " +
+            "following_count = (SELECT COUNT(*) FROM follows f WHERE f.follower_id = user_stats.user_id) " +
+            "WHERE followers_count IS NULL OR following_count IS NULL";
+
+    // Builds one user's row from the movies and follows tables, unless the user has one
+    private static final String INSERT_BUILT_ROW_SQL =
+            "INSERT INTO user_stats (user_id, wishlist_count, watched_count, runtime_sum, rating_sum, rating_count, " +
+            "followers_count, following_count) SELECT u.id, " +
+            "(SELECT COUNT(*) FROM movies m WHERE m.user_id = u.id AND m.status = 'WISHLIST'), " +
+            "(SELECT COUNT(*) FROM movies m WHERE m.user_id = u.id AND m.status = 'WATCHED'), " +
+            "(SELECT COALESCE(SUM(m.runtime), 0) FROM movies m WHERE m.user_id = u.id AND m.status = 'WATCHED'), " +
+            "(SELECT COALESCE(SUM(m.rating), 0) FROM movies m WHERE m.user_id = u.id AND m.status = 'WATCHED'), " +
+            "(SELECT COUNT(m.rating) FROM movies m WHERE m.user_id = u.id AND m.status = 'WATCHED'), " +
+            "(SELECT COUNT(*) FROM follows f WHERE f.following_id = u.id), " +
+            "(SELECT COUNT(*) FROM follows f WHERE f.follower_id = u.id) " +
+            "FROM users u WHERE u.id = ? ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_GENRE_COUNT_SQL =
+            "INSERT INTO user_genre_stats (user_id, genre, watched_count) VALUES (?, ?, ?)";
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The fields of a movie that contribute to user_stats, captured before it is modified.
+     */
+    public record MovieFacts(Movie.Status status, Integer runtime, Integer rating, long genreMask) {
+
+        public static MovieFacts of(Movie movie) {
+            return new MovieFacts(movie.getStatus(), movie.getRuntime(), movie.getRating(), movie.getGenreMask());
+        }
+    }
+
+    /**
+     * Creates the all-zero row of a user that has just been created. Does nothing if the
+     * row already exists.
+     */
+    @Transactional
+    public void createFor(Long userId) {
+        userStatsRepository.insertIfAbsent(userId);
+    }
+
+    /**
+     * Returns the user's stats, building the row from the movies table the first time for
+     * users created before the table existed.
+     */
+    @Transactional
+    public UserStats getStats(Long userId) {
+        return userStatsRepository.findById(userId).orElseGet(() -> rebuildLocked(userId));
+    }
+
+    /**
+     * Creates the rows of the users that lack one and returns the profile totals of all the
+     * given users. Each missing row is built by a single statement and the statements go in
+     * one batch, where {@link #getStats} would rebuild the users one at a time.
+     */
+    @Transactional
+    public List<UserProfileTotals> createMissing(List<Long> userIds) {
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_BUILT_ROW_SQL,
+                userIds.stream().map(userId -> new Object[]{userId}).toList());
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                created.add(userIds.get(i));
+            }
+        }
+
+        // Rows another writer created meanwhile already have their genre counts
+        Map<Long, long[]> countsByGenre = new HashMap<>();
+        if (!created.isEmpty()) {
+            Map<Long, Map<String, Long>> genreCounts = new HashMap<>();
+            for (Object[] row : movieRepository.countWatchedPerGenreMaskOfUsers(created)) {
+                Long userId = (Long) row[0];
+                long genreMask = (Long) row[1];
+                long count = (Long) row[2];
+                for (String genre : genreService.namesOf(genreMask)) {
+                    genreCounts.computeIfAbsent(userId, id -> new HashMap<>()).merge(genre, count, Long::sum);
+                }
+                long[] counts = countsByGenre.computeIfAbsent(userId, id -> new long[GenreDictionary.MAX_GENRES]);
+                for (long remaining = genreMask; remaining != 0; remaining &= remaining - 1) {
+                    counts[Long.numberOfTrailingZeros(remaining)] += count;
+                }
+            }
+            List<Object[]> genreRows = new ArrayList<>();
+            genreCounts.forEach((userId, counts) ->
+                    counts.forEach((genre, count) -> genreRows.add(new Object[]{userId, genre, count})));
+            jdbcTemplate.batchUpdate(INSERT_GENRE_COUNT_SQL, genreRows);
+        }
+
+        Set<Long> createdIds = new HashSet<>(created);
+        List<UserProfileTotals> totals = userStatsRepository.findProfileTotalsByUserIds(userIds);
+        for (UserProfileTotals userTotals : totals) {
+            if (createdIds.contains(userTotals.userId())) {
+                leaderboardService.setAfterCommit(userTotals.userId(), userTotals.watchedCount());
+                leaderboardService.setGenresAfterCommit(userTotals.userId(),
+                        countsByGenre.getOrDefault(userTotals.userId(), new long[GenreDictionary.MAX_GENRES]));
+            }
+        }
+        if (!created.isEmpty()) {
+            logger.debug("Created user stats of {} users", created.size());
+        }
+        return totals;
+    }
+
+    /**
+     * Moves the user's totals from {@code before} to {@code after}. Pass null for the side
+     * that does not exist (a new or a deleted movie). Must run in the transaction that
+     * writes the movie.
+     *
+     * @return the user's updated row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public UserStats apply(Long userId, MovieFacts before, MovieFacts after) {
+        Optional<UserStats> locked = userStatsRepository.findByIdForUpdate(userId);
+        if (locked.isEmpty()) {
+            // The aggregate queries flush the pending movie write first, so the freshly
+            // built row already includes this change
+            return rebuildLocked(userId);
+        }
+        UserStats stats = locked.get();
+        long watchedBefore = stats.getWatchedCount();
+        add(stats, before, -1);
+        add(stats, after, 1);
+        if (stats.getWatchedCount() != watchedBefore) {
+            leaderboardService.adjustAfterCommit(userId, stats.getWatchedCount() - watchedBefore);
+        }
+        long genresBefore = watchedGenreMask(before);
+        long genresAfter = watchedGenreMask(after);
+        leaderboardService.adjustGenresAfterCommit(userId, genresBefore & ~genresAfter, -1);
+        leaderboardService.adjustGenresAfterCommit(userId, genresAfter & ~genresBefore, 1);
+        return stats;
+    }
+
+    /**
+     * Moves the follow counts of both users by delta, 1 for a follow and -1 for an
+     * unfollow. Must run in the transaction that writes the follow.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyFollow(Long followerId, Long followingId, long delta) {
+        // Lower id first, so a pair of users following each other at once cannot deadlock
+        if (followerId < followingId) {
+            adjustFollowing(followerId, delta);
+            adjustFollowers(followingId, delta);
+        } else {
+            adjustFollowers(followingId, delta);
+            adjustFollowing(followerId, delta);
+        }
+    }
+
+    // Fills in the follow counts of rows that predate those columns
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillFollowCounts() {
+        int updated = jdbcTemplate.update(BACKFILL_FOLLOW_COUNTS_SQL);
+        if (updated > 0) {
+            logger.info("Backfilled follow counts of {} users", updated);
+        }
+    }
+
+    @Transactional
+    public UserStats rebuild(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
+        return rebuildLocked(userId);
+    }
+
+    /**
+     * Recomputes every user's row, one transaction per user.
+     *
+     * @return the number of users rebuilt
+     */
+    public int rebuildAll() {
+        int rebuilt = 0;
+        for (Long userId : userRepository.findAllIds()) {
+            transactionTemplate.executeWithoutResult(status -> rebuildLocked(userId));
+            rebuilt++;
+        }
+        logger.info("Rebuilt user stats for {} users", rebuilt);
+        return rebuilt;
+    }
+
+    private UserStats rebuildLocked(Long userId) {
+        // Insert first so there is always a row to lock; a lock on an absent row holds nothing
+        boolean created = userStatsRepository.insertIfAbsent(userId) > 0;
+        UserStats stats = userStatsRepository.findByIdForUpdate(userId).orElseThrow();
+        Long watchedBefore = created ? null : stats.getWatchedCount();
+
+        stats.setWishlistCount(0L);
+        for (StatusCount statusCount : movieRepository.countGroupedByStatusForUser(userId)) {
+            if (statusCount.status() == Movie.Status.WISHLIST) {
+                stats.setWishlistCount(statusCount.count());
+            }
+        }
+
+        WatchSums watched = movieRepository.sumWatchedForUser(userId);
+        stats.setWatchedCount(watched.count());
+        stats.setRuntimeSum(watched.totalRuntime());
+        stats.setRatingSum(watched.ratingSum());
+        stats.setRatingCount(watched.ratingCount());
+        // Without a previous row the old count is unknown, so set it outright
+        if (watchedBefore == null) {
+            leaderboardService.setAfterCommit(userId, watched.count());
+        } else if (watched.count() != watchedBefore.longValue()) {
+            leaderboardService.adjustAfterCommit(userId, watched.count() - watchedBefore);
+        }
+
+        stats.setFollowersCount(followRepository.countFollowersByUserId(userId));
+        stats.setFollowingCount(followRepository.countFollowingByUserId(userId));
+
+        stats.getGenreCounts().clear();
+        long[] countsByGenre = new long[GenreDictionary.MAX_GENRES];
+        for (GenreMaskAggregate group : movieRepository.aggregateWatchedByGenreMaskForUser(userId)) {
+            for (String genre : genreService.namesOf(group.genreMask())) {
+                stats.getGenreCounts().merge(genre, group.count(), Long::sum);
+            }
+            for (long remaining = group.genreMask(); remaining != 0; remaining &= remaining - 1) {
+                countsByGenre[Long.numberOfTrailingZeros(remaining)] += group.count();
+            }
+        }
+        leaderboardService.setGenresAfterCommit(userId, countsByGenre);
+
+        return userStatsRepository.save(stats);
+    }
+
+    // A missing row is built from the follows table, which already holds this change
+    private void adjustFollowers(Long userId, long delta) {
+        if (userStatsRepository.adjustFollowersCount(userId, delta) == 0) {
+            rebuildLocked(userId);
+        }
+    }
+
+    private void adjustFollowing(Long userId, long delta) {
+        if (userStatsRepository.adjustFollowingCount(userId, delta) == 0) {
+            rebuildLocked(userId);
+        }
+    }
+
+    // Genres a movie counts towards on the genre leaderboards: its own while watched
+    private static long watchedGenreMask(MovieFacts facts) {
+        return facts != null && facts.status() == Movie.Status.WATCHED ? facts.genreMask() : 0L;
+    }
+
+    private void add(UserStats stats, MovieFacts facts, int sign) {
+        if (facts == null) {
+            return;
+        }
+        if (facts.status() == Movie.Status.WISHLIST) {
+            stats.setWishlistCount(stats.getWishlistCount() + sign);
+            return;
+        }
+
+        stats.setWatchedCount(stats.getWatchedCount() + sign);
+        if (facts.runtime() != null) {
+            stats.setRuntimeSum(stats.getRuntimeSum() + (long) sign * facts.runtime());
+        }
+        if (facts.rating() != null) {
+            stats.setRatingSum(stats.getRatingSum() + (long) sign * facts.rating());
+            stats.setRatingCount(stats.getRatingCount() + sign);
+        }
+        // A movie counts towards each of its genres
+        for (String genre : genreService.namesOf(facts.genreMask())) {
+            Long count = stats.getGenreCounts().merge(genre, (long) sign, Long::sum);
+            if (count <= 0) {
+                stats.getGenreCounts().remove(genre);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.MonthlyRollup;
+import com.movielist.entity.WatchEvent;
+import com.movielist.payload.MonthlyStatsResponse;
+import com.movielist.repository.MonthlyRollupRepository;
+import com.movielist.repository.WatchEventRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends watch events and keeps the monthly rollups in step with them. A user's rollup
+ * row is adjusted in the transaction that records the event, with an insert-if-absent on
+ * the (user_id, bucket_month) key followed by an in-place increment. The global row (user
+ * id 0) would be a hot spot under that scheme, so its deltas are buffered after commit and
+ * applied by a scheduled flush, the same way MovieCounterService handles the movie
+ * counters. A rebuild takes a write lock that waits out every recording transaction.
+ */
+@Service
+public class WatchEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchEventService.class);
+
+    public static final long GLOBAL_USER_ID = 0L;
+
+    // The primary key (user_id, bucket_month) is the table's only unique key, so the
+    // conflict can only be an existing row for the month
+    private static final String INSERT_ROLLUP_IF_ABSENT_SQL =
+            "INSERT INTO monthly_rollups (user_id, bucket_month, watch_count, runtime_sum, rating_sum, rating_count) " +
+            "VALUES (?, ?, 0, 0, 0, 0) ON CONFLICT DO NOTHING";
+
+    private static final String UPDATE_ROLLUP_SQL =
+            "UPDATE monthly_rollups SET watch_count = watch_count + ?, runtime_sum = runtime_sum + ?, " +
+            "rating_sum = rating_sum + ?, rating_count = rating_count + ? WHERE user_id = ? AND bucket_month = ?";
+
+    private static final String CLEAR_ROLLUPS_SQL = "DELETE FROM monthly_rollups";
+
+    private static final String REBUILD_USER_ROLLUPS_SQL =
+            "INSERT INTO monthly_rollups (user_id, bucket_month, watch_count, runtime_sum, rating_sum, rating_count) " +
+            "SELECT user_id, bucket_month, COUNT(*), COALESCE(SUM(runtime), 0), COALESCE(SUM(rating), 0), COUNT(rating) " +
+            "FROM watch_events GROUP BY user_id, bucket_month";
+
+    private static final String REBUILD_GLOBAL_ROLLUPS_SQL =
+            "INSERT INTO monthly_rollups (user_id, bucket_month, watch_count, runtime_sum, rating_sum, rating_count) " +
+            "SELECT " + GLOBAL_USER_ID + ", bucket_month, COUNT(*), COALESCE(SUM(runtime), 0), COALESCE(SUM(rating), 0), COUNT(rating) " +
+            "FROM watch_events GROUP BY bucket_month";
+
+    private static final int BACKFILL_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private WatchEventRepository watchEventRepository;
+
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${movielist.watch-events.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private final Map<Integer, Delta> globalDeltas = new ConcurrentHashMap<>();
+
+    // Read side held by each recording transaction until it completes, write side by a rebuild
+    private final ReadWriteLock writes = new ReentrantReadWriteLock();
+
+    /**
+     * Pending change to one rollup row.
+     */
+    private static class Delta {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder runtime = new LongAdder();
+        private final LongAdder ratingSum = new LongAdder();
+        private final LongAdder ratingCount = new LongAdder();
+
+        void add(long count, long runtime, long ratingSum, long ratingCount) {
+            this.count.add(count);
+            this.runtime.add(runtime);
+            this.ratingSum.add(ratingSum);
+            this.ratingCount.add(ratingCount);
+        }
+    }
+
+    /**
+     * Records one viewing of a movie at {@code watchedAt}, with the movie's current runtime
+     * and rating.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordWatch(Long userId, Movie movie, Instant watchedAt) {
+        recordWatches(userId, List.of(movie), watchedAt);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordWatches(Long userId, Collection<Movie> movies, Instant watchedAt) {
+        if (movies.isEmpty()) {
+            return;
+        }
+        lockUntilCompletion();
+        int bucket = bucketOf(watchedAt);
+        Delta delta = new Delta();
+        for (Movie movie : movies) {
+            WatchEvent event = new WatchEvent();
+            event.setUserId(userId);
+            event.setMovieId(movie.getId());
+            event.setWatchedAt(watchedAt);
+            event.setBucketMonth(bucket);
+            event.setRuntime(movie.getRuntime());
+            event.setRating(movie.getRating());
+            entityManager.persist(event);
+            delta.add(1, valueOf(event.getRuntime()), valueOf(event.getRating()), event.getRating() != null ? 1 : 0);
+        }
+        applyToUser(userId, bucket, delta);
+        applyToGlobalAfterCommit(bucket, delta);
+        leaderboardService.recordViewingsAfterCommit(userId, movies.size(), watchedAt);
+    }
+
+    /**
+     * Moves the rating of the user's most recent viewing of a movie, so editing a rating
+     * adjusts the month it was watched in rather than the month it was edited in.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateLatestRating(Long userId, Long movieId, Integer rating) {
+        lockUntilCompletion();
+        watchEventRepository.findFirstByUserIdAndMovieIdOrderByWatchedAtDescIdDesc(userId, movieId).ifPresent(event -> {
+            Integer previous = event.getRating();
+            if (previous == null ? rating == null : previous.equals(rating)) {
+                return;
+            }
+            event.setRating(rating);
+            Delta delta = new Delta();
+            delta.add(0, 0, valueOf(rating) - valueOf(previous), (rating != null ? 1 : 0) - (previous != null ? 1 : 0));
+            applyToUser(userId, event.getBucketMonth(), delta);
+            applyToGlobalAfterCommit(event.getBucketMonth(), delta);
+        });
+    }
+
+    /**
+     * Monthly totals between two months inclusive, read straight from the rollups. Either
+     * bound may be null for an open range.
+     */
+    public List<MonthlyStatsResponse> getMonthlyStats(Long userId, YearMonth from, YearMonth to) {
+        if (userId == GLOBAL_USER_ID) {
+            flush();
+        }
+        int fromBucket = from != null ? bucketOf(from) : 0;
+        int toBucket = to != null ? bucketOf(to) : Integer.MAX_VALUE;
+
+        List<MonthlyStatsResponse> monthlyStats = new ArrayList<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findByUserIdAndBucketMonthBetweenOrderByBucketMonth(userId, fromBucket, toBucket)) {
+            if (rollup.getWatchCount() <= 0) {
+                continue;
+            }
+            String month = YearMonth.of(rollup.getBucketMonth() / 100, rollup.getBucketMonth() % 100).toString();
+            double averageRating = rollup.getRatingCount() > 0 ? (double) rollup.getRatingSum() / rollup.getRatingCount() : 0.0;
+            monthlyStats.add(new MonthlyStatsResponse(month, rollup.getWatchCount(), rollup.getRuntimeSum(), averageRating));
+        }
+        return monthlyStats;
+    }
+
+    @Scheduled(fixedDelayString = "${movielist.watch-events.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        for (Integer bucket : new ArrayList<>(globalDeltas.keySet())) {
+            Delta delta = globalDeltas.get(bucket);
+            long count = delta.count.sumThenReset();
+            long runtime = delta.runtime.sumThenReset();
+            long ratingSum = delta.ratingSum.sumThenReset();
+            long ratingCount = delta.ratingCount.sumThenReset();
+            if (count == 0 && runtime == 0 && ratingSum == 0 && ratingCount == 0) {
+                continue;
+            }
+            try {
+                upsertRollup(GLOBAL_USER_ID, bucket, count, runtime, ratingSum, ratingCount);
+            } catch (DataAccessException e) {
+                logger.error("Failed to flush global rollup for {}, will retry: {}", bucket, e.getMessage());
+                delta.add(count, runtime, ratingSum, ratingCount);
+            }
+        }
+    }
+
+    /**
+     * Creates watch events for watched movies that predate the event log, dated by the
+     * movie's last update, then rebuilds every rollup from the log.
+     *
+     * @return the number of events created
+     */
+    public synchronized long backfill() {
+        long created = 0;
+        long afterId = 0;
+        while (true) {
+            long lastId = afterId;
+            List<Movie> movies = watchEventRepository.findWatchedMoviesWithoutEvents(lastId, PageRequest.of(0, BACKFILL_CHUNK_SIZE));
+            if (movies.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Movie movie : movies) {
+                    Instant watchedAt = movie.getUpdatedAt() != null ? movie.getUpdatedAt()
+                            : movie.getCreatedAt() != null ? movie.getCreatedAt() : Instant.now();
+                    WatchEvent event = new WatchEvent();
+                    event.setUserId(movie.getUser().getId());
+                    event.setMovieId(movie.getId());
+                    event.setWatchedAt(watchedAt);
+                    event.setBucketMonth(bucketOf(watchedAt));
+                    event.setRuntime(movie.getRuntime());
+                    event.setRating(movie.getRating());
+                    entityManager.persist(event);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            created += movies.size();
+            afterId = movies.get(movies.size() - 1).getId();
+        }
+        if (created > 0) {
+            rebuildRollups();
+        }
+        logger.info("Backfilled {} watch events", created);
+        return created;
+    }
+
+    /**
+     * Recomputes every rollup row from watch_events. Waits for in-flight recordings to
+     * complete and holds off new ones until the rebuild commits, so each viewing lands in
+     * the rebuilt rows or in the buffered global deltas, never both or neither.
+     */
+    public synchronized void rebuildRollups() {
+        // The fence is taken inside the transaction, which already holds its connection:
+        // waiting for it with no connection leaves the pool to the writers being waited on
+        transactionTemplate.executeWithoutResult(status -> {
+            writes.writeLock().lock();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    writes.writeLock().unlock();
+                }
+            });
+            globalDeltas.clear();
+            jdbcTemplate.update(CLEAR_ROLLUPS_SQL);
+            jdbcTemplate.update(REBUILD_USER_ROLLUPS_SQL);
+            jdbcTemplate.update(REBUILD_GLOBAL_ROLLUPS_SQL);
+        });
+    }
+
+    // Runs before other startup listeners so the first analytics snapshot sees the backfill
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    // Taken before the caller's first write and released once its transaction completes,
+    // after the afterCommit callbacks have buffered its global delta
+    private void lockUntilCompletion() {
+        writes.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                writes.readLock().unlock();
+            }
+        });
+    }
+
+    private void applyToUser(Long userId, int bucket, Delta delta) {
+        upsertRollup(userId, bucket, delta.count.sum(), delta.runtime.sum(), delta.ratingSum.sum(), delta.ratingCount.sum());
+    }
+
+    private void applyToGlobalAfterCommit(int bucket, Delta delta) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                globalDeltas.computeIfAbsent(bucket, b -> new Delta())
+                        .add(delta.count.sum(), delta.runtime.sum(), delta.ratingSum.sum(), delta.ratingCount.sum());
+            }
+        });
+    }
+
+    private void upsertRollup(long userId, int bucket, long count, long runtime, long ratingSum, long ratingCount) {
+        jdbcTemplate.update(INSERT_ROLLUP_IF_ABSENT_SQL, userId, bucket);
+        jdbcTemplate.update(UPDATE_ROLLUP_SQL, count, runtime, ratingSum, ratingCount, userId, bucket);
+    }
+
+    /**
+     * UTC month of an instant as yyyymm.
+     */
+    public static int bucketOf(Instant instant) {
+        ZonedDateTime utc = instant.atZone(ZoneOffset.UTC);
+        return utc.getYear() * 100 + utc.getMonthValue();
+    }
+
+    private static int bucketOf(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,138 @@
+package com.movielist.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, double-quoted fields that may contain
+ * commas, escaped quotes ("") and line breaks. Reads one record at a time so arbitrarily
+ * large files never need to fit in memory. A field longer than the cap, such as the rest of
+ * the file after an unterminated quote, rejects its record instead of being buffered.
+ */
+public class CsvReader {
+
+    public static final int DEFAULT_MAX_FIELD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+    private final int maxFieldLength;
+    private int lineNumber = 1;
+    private int recordLine;
+    private int pushedBack = -2;
+
+    public CsvReader(Reader reader) {
+        this(reader, DEFAULT_MAX_FIELD_LENGTH);
+    }
+
+    public CsvReader(Reader reader, int maxFieldLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /**
+     * Returns the next record, or null at end of input. Blank lines are skipped.
+     *
+     * @throws IllegalArgumentException if a field is longer than the cap. The rest of the
+     *         line the cap was hit on is skipped, so the next call starts on the line after it
+     */
+    public List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAny = false;
+        recordLine = lineNumber;
+
+        int c;
+        while ((c = read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    append(field, c);
+                }
+                continue;
+            }
+
+            if (c == '"') {
+                quoted = true;
+                sawAny = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                sawAny = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                lineNumber++;
+                if (!sawAny && field.length() == 0) {
+                    recordLine = lineNumber;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                if (c == '\uFEFF' && !sawAny && field.length() == 0 && fields.isEmpty()) {
+                    continue; // byte order mark
+                }
+                append(field, c);
+                sawAny = true;
+            }
+        }
+
+        if (!sawAny && field.length() == 0) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Line on which the most recently returned record started.
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    private void append(StringBuilder field, int c) throws IOException {
+        if (field.length() >= maxFieldLength) {
+            skipLine();
+            throw new IllegalArgumentException("Field longer than " + maxFieldLength + " characters");
+        }
+        field.append((char) c);
+    }
+
+    private void skipLine() throws IOException {
+        int c = read();
+        while (c != -1 && c != '\n') {
+            c = read();
+        }
+        lineNumber++;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,322 @@
+package com.movielist.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Directed follow graph held as sorted primitive adjacency arrays in both directions: the
+ * users each user follows and the users following them. Users map to dense slots through
+ * a {@link LongIntHashMap}, so an edge costs 16 bytes (8 per direction) plus array slack,
+ * with no boxing. Lookups binary-search one array, counts are array lengths, and edits
+ * shift the tail of two arrays. Not thread-safe; callers synchronize.
+ */
+public class FollowGraph {
+
+    private static final int SNAPSHOT_MAGIC = 0x46475331; // "FGS1"
+    private static final long[] NONE = new long[0];
+
+    private final LongIntHashMap slots;
+    private long[] userIds;
+    private long[][] following;
+    private int[] followingSizes;
+    private long[][] followers;
+    private int[] followerSizes;
+    private int users;
+    private long edges;
+
+    /**
+     * A suggested user and how many of the user's follows follow them.
+     */
+    public record Suggestion(long userId, int via) {
+    }
+
+    public FollowGraph() {
+        this(16);
+    }
+
+    private FollowGraph(int expectedUsers) {
+        slots = new LongIntHashMap(expectedUsers);
+        int capacity = Math.max(16, expectedUsers);
+        userIds = new long[capacity];
+        following = new long[capacity][];
+        followingSizes = new int[capacity];
+        followers = new long[capacity][];
+        followerSizes = new int[capacity];
+    }
+
+    /**
+     * Builds a graph from an edge list in one pass, sizing every adjacency array exactly.
+     * Duplicate edges are kept once.
+     */
+    public static FollowGraph of(long[] followerIds, long[] followingIds, int edgeCount) {
+        LongIntHashMap outDegrees = new LongIntHashMap();
+        LongIntHashMap inDegrees = new LongIntHashMap();
+        for (int i = 0; i < edgeCount; i++) {
+            outDegrees.put(followerIds[i], outDegrees.get(followerIds[i], 0) + 1);
+            inDegrees.put(followingIds[i], inDegrees.get(followingIds[i], 0) + 1);
+        }
+        FollowGraph graph = new FollowGraph(outDegrees.size() + inDegrees.size());
+        outDegrees.forEach((userId, degree) -> graph.following[graph.slotOf(userId)] = new long[degree]);
+        inDegrees.forEach((userId, degree) -> graph.followers[graph.slotOf(userId)] = new long[degree]);
+        for (int i = 0; i < edgeCount; i++) {
+            int from = graph.slots.get(followerIds[i], -1);
+            int to = graph.slots.get(followingIds[i], -1);
+            graph.following[from][graph.followingSizes[from]++] = followingIds[i];
+            graph.followers[to][graph.followerSizes[to]++] = followerIds[i];
+        }
+        for (int slot = 0; slot < graph.users; slot++) {
+            graph.followingSizes[slot] = sortDistinct(graph.following[slot], graph.followingSizes[slot]);
+            graph.followerSizes[slot] = sortDistinct(graph.followers[slot], graph.followerSizes[slot]);
+            graph.edges += graph.followingSizes[slot];
+        }
+        return graph;
+    }
+
+    /**
+     * @return false if the edge already existed
+     */
+    public boolean add(long followerId, long followingId) {
+        int from = slotOf(followerId);
+        int to = slotOf(followingId);
+        int at = Arrays.binarySearch(adjacency(following, from), 0, followingSizes[from], followingId);
+        if (at >= 0) {
+            return false;
+        }
+        following[from] = insert(following[from], followingSizes[from]++, -at - 1, followingId);
+        int back = Arrays.binarySearch(adjacency(followers, to), 0, followerSizes[to], followerId);
+        followers[to] = insert(followers[to], followerSizes[to]++, -back - 1, followerId);
+        edges++;
+        return true;
+    }
+
+    /**
+     * @return false if there was no such edge
+     */
+    public boolean remove(long followerId, long followingId) {
+        int from = slots.get(followerId, -1);
+        int to = slots.get(followingId, -1);
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        int at = Arrays.binarySearch(adjacency(following, from), 0, followingSizes[from], followingId);
+        if (at < 0) {
+            return false;
+        }
+        delete(following[from], followingSizes[from]--, at);
+        int back = Arrays.binarySearch(followers[to], 0, followerSizes[to], followerId);
+        delete(followers[to], followerSizes[to]--, back);
+        edges--;
+        return true;
+    }
+
+    public boolean contains(long followerId, long followingId) {
+        int from = slots.get(followerId, -1);
+        return from >= 0 && Arrays.binarySearch(adjacency(following, from), 0, followingSizes[from], followingId) >= 0;
+    }
+
+    public boolean isMutual(long userId, long otherId) {
+        return contains(userId, otherId) && contains(otherId, userId);
+    }
+
+    public int followingCount(long userId) {
+        int slot = slots.get(userId, -1);
+        return slot >= 0 ? followingSizes[slot] : 0;
+    }
+
+    public int followersCount(long userId) {
+        int slot = slots.get(userId, -1);
+        return slot >= 0 ? followerSizes[slot] : 0;
+    }
+
+    /**
+     * Ids of the users the user follows, ascending.
+     */
+    public long[] following(long userId) {
+        int slot = slots.get(userId, -1);
+        return slot >= 0 ? Arrays.copyOf(adjacency(following, slot), followingSizes[slot]) : NONE;
+    }
+
+    /**
+     * Ids of the users following the user, ascending.
+     */
+    public long[] followers(long userId) {
+        int slot = slots.get(userId, -1);
+        return slot >= 0 ? Arrays.copyOf(adjacency(followers, slot), followerSizes[slot]) : NONE;
+    }
+
+    /**
+     * Friends of friends: users followed by the users this user follows, that the user
+     * neither is nor already follows, ranked by how many of their follows lead there
+     * (then by id). Cost is the sum of the out-degrees of the user's follows.
+     */
+    public List<Suggestion> suggest(long userId, int limit) {
+        int slot = slots.get(userId, -1);
+        if (slot < 0 || limit <= 0) {
+            return List.of();
+        }
+        long[] direct = adjacency(following, slot);
+        int directCount = followingSizes[slot];
+        LongIntHashMap via = new LongIntHashMap();
+        for (int i = 0; i < directCount; i++) {
+            int friend = slots.get(direct[i], -1);
+            long[] candidates = adjacency(following, friend);
+            for (int j = 0; j < followingSizes[friend]; j++) {
+                long candidate = candidates[j];
+                if (candidate != userId && Arrays.binarySearch(direct, 0, directCount, candidate) < 0) {
+                    via.put(candidate, via.get(candidate, 0) + 1);
+                }
+            }
+        }
+        // Keep the best `limit` in a min-heap whose head is the weakest kept suggestion
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, (a, b) ->
+                a.via() != b.via() ? Integer.compare(a.via(), b.via()) : Long.compare(b.userId(), a.userId()));
+        via.forEach((candidate, count) -> {
+            best.add(new Suggestion(candidate, count));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Suggestion> ranked = new ArrayList<>(best);
+        ranked.sort((a, b) -> a.via() != b.via() ? Integer.compare(b.via(), a.via()) : Long.compare(a.userId(), b.userId()));
+        return ranked;
+    }
+
+    public int userCount() {
+        return users;
+    }
+
+    public long edgeCount() {
+        return edges;
+    }
+
+    /**
+     * Approximate heap footprint: the slot map, per-slot arrays and adjacency capacity.
+     */
+    public long sizeInBytes() {
+        long size = 64 + slots.sizeInBytes() + userIds.length * (8L + 4 + 4 + 2 * 8);
+        for (int slot = 0; slot < users; slot++) {
+            size += arrayBytes(following[slot]) + arrayBytes(followers[slot]);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the edges as each user's sorted following list. Followers are derived on read.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(edges);
+        int withFollows = 0;
+        for (int slot = 0; slot < users; slot++) {
+            if (followingSizes[slot] > 0) {
+                withFollows++;
+            }
+        }
+        out.writeInt(withFollows);
+        for (int slot = 0; slot < users; slot++) {
+            if (followingSizes[slot] > 0) {
+                out.writeLong(userIds[slot]);
+                out.writeInt(followingSizes[slot]);
+                for (int i = 0; i < followingSizes[slot]; i++) {
+                    out.writeLong(following[slot][i]);
+                }
+            }
+        }
+    }
+
+    public static FollowGraph readFrom(DataInput in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a follow graph snapshot");
+        }
+        long edgeCount = in.readLong();
+        if (edgeCount < 0 || edgeCount > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt follow graph snapshot: " + edgeCount + " edges");
+        }
+        long[] followerIds = new long[(int) edgeCount];
+        long[] followingIds = new long[(int) edgeCount];
+        int filled = 0;
+        int withFollows = in.readInt();
+        for (int user = 0; user < withFollows; user++) {
+            long userId = in.readLong();
+            int degree = in.readInt();
+            if (degree < 0 || filled + degree > edgeCount) {
+                throw new IOException("Corrupt follow graph snapshot at user " + userId);
+            }
+            for (int i = 0; i < degree; i++) {
+                followerIds[filled] = userId;
+                followingIds[filled++] = in.readLong();
+            }
+        }
+        if (filled != edgeCount) {
+            throw new IOException("Corrupt follow graph snapshot: expected " + edgeCount + " edges, read " + filled);
+        }
+        return of(followerIds, followingIds, filled);
+    }
+
+    private int slotOf(long userId) {
+        int slot = slots.get(userId, -1);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (users == userIds.length) {
+            int capacity = users * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            following = Arrays.copyOf(following, capacity);
+            followingSizes = Arrays.copyOf(followingSizes, capacity);
+            followers = Arrays.copyOf(followers, capacity);
+            followerSizes = Arrays.copyOf(followerSizes, capacity);
+        }
+        slot = users++;
+        userIds[slot] = userId;
+        slots.put(userId, slot);
+        return slot;
+    }
+
+    private static long[] adjacency(long[][] lists, int slot) {
+        return lists[slot] != null ? lists[slot] : NONE;
+    }
+
+    // Inserts value at index into the first size entries, growing the array by half when full
+    private static long[] insert(long[] list, int size, int index, long value) {
+        long[] target = list;
+        if (list == null || size == list.length) {
+            target = new long[Math.max(4, size + (size >> 1))];
+            if (list != null) {
+                System.arraycopy(list, 0, target, 0, index);
+            }
+        }
+        if (list != null) {
+            System.arraycopy(list, index, target, index + 1, size - index);
+        }
+        target[index] = value;
+        return target;
+    }
+
+    private static void delete(long[] list, int size, int index) {
+        System.arraycopy(list, index + 1, list, index, size - index - 1);
+    }
+
+    // Sorts the first size entries and drops repeats, returning the new size
+    private static int sortDistinct(long[] list, int size) {
+        if (list == null || size == 0) {
+            return 0;
+        }
+        Arrays.sort(list, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (list[i] != list[distinct - 1]) {
+                list[distinct++] = list[i];
+            }
+        }
+        return distinct;
+    }
+
+    private static long arrayBytes(long[] list) {
+        return list != null ? 16 + list.length * 8L : 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.movielist.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Maps genre names to bit positions 0..63, so the genres of a movie fit in one long mask
+ * and per-genre totals can live in primitive arrays indexed by bit. Names match
+ * case-insensitively and keep the spelling they were first registered with. Not
+ * thread-safe; callers synchronize.
+ */
+public class GenreDictionary {
+
+    public static final int MAX_GENRES = Long.SIZE;
+
+    // Longer parts are not genre names but stray text, and would not fit the column
+    public static final int MAX_NAME_LENGTH = 100;
+
+    // OMDb joins genres with ", ", MovieLens-style exports with "|"
+    private static final Pattern SEPARATOR = Pattern.compile("[,|/]");
+
+    private final Map<String, Integer> bits = new HashMap<>();
+    private final String[] names = new String[MAX_GENRES];
+    private int size;
+
+    /**
+     * Splits free text such as "Action, Sci-Fi" into trimmed, distinct genre names.
+     * Parts longer than {@link #MAX_NAME_LENGTH} are dropped.
+     */
+    public static List<String> split(String genres) {
+        if (genres == null || genres.isBlank()) {
+            return List.of();
+        }
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String part : SEPARATOR.split(genres)) {
+            String name = part.trim();
+            if (!name.isEmpty() && name.length() <= MAX_NAME_LENGTH) {
+                distinct.putIfAbsent(key(name), name);
+            }
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Returns the bit of a genre, or {@link WatchAggregator#NONE} if it is not registered.
+     */
+    public int bitOf(String name) {
+        Integer bit = bits.get(key(name));
+        return bit != null ? bit : WatchAggregator.NONE;
+    }
+
+    public void put(int bit, String name) {
+        if (names[bit] == null) {
+            size++;
+        } else {
+            bits.remove(key(names[bit]));
+        }
+        names[bit] = name;
+        bits.put(key(name), bit);
+    }
+
+    public int nextFreeBit() {
+        for (int bit = 0; bit < MAX_GENRES; bit++) {
+            if (names[bit] == null) {
+                return bit;
+            }
+        }
+        return WatchAggregator.NONE;
+    }
+
+    /**
+     * Mask of the registered genres named in free text; unknown names are ignored.
+     */
+    public long maskOf(String genres) {
+        long mask = 0;
+        for (String name : split(genres)) {
+            int bit = bitOf(name);
+            if (bit != WatchAggregator.NONE) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    public String nameOf(int bit) {
+        return names[bit];
+    }
+
+    /**
+     * Genre names indexed by bit, with null for free bits.
+     */
+    public String[] toArray() {
+        return names.clone();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,179 @@
+package com.movielist.util;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative long ids, laid out like a Roaring bitmap: ids are split
+ * into a high key (id >>> 16) and a 16-bit low part. Each key owns a container that is a
+ * sorted char array while sparse and switches to a 65536-bit bitmap once it holds more
+ * than 4096 values, which is the point where the bitmap becomes the smaller of the two.
+ * Not thread-safe; callers synchronize.
+ */
+public class LongBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private long[] keys = new long[0];
+    private Object[] containers = new Object[0]; // char[] (sorted) or long[1024]
+    private int[] cardinalities = new int[0];
+    private long size;
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof long[] bitmap) {
+            return (bitmap[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    public boolean add(long id) {
+        long key = id >>> 16;
+        char low = (char) id;
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            index = insertContainer(-index - 1, key);
+        }
+
+        Object container = containers[index];
+        if (container instanceof long[] bitmap) {
+            long bit = 1L << low;
+            if ((bitmap[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            bitmap[low >>> 6] |= bit;
+        } else {
+            char[] array = (char[]) container;
+            int cardinality = cardinalities[index];
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (cardinality == ARRAY_MAX) {
+                long[] bitmap = toBitmap(array, cardinality);
+                bitmap[low >>> 6] |= 1L << low;
+                containers[index] = bitmap;
+            } else {
+                if (cardinality == array.length) {
+                    array = Arrays.copyOf(array, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+                    containers[index] = array;
+                }
+                System.arraycopy(array, position, array, position + 1, cardinality - position);
+                array[position] = low;
+            }
+        }
+        cardinalities[index]++;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof long[] bitmap) {
+            long bit = 1L << low;
+            if ((bitmap[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            bitmap[low >>> 6] &= ~bit;
+            if (cardinalities[index] - 1 == ARRAY_MAX) {
+                containers[index] = toArray(bitmap, ARRAY_MAX);
+            }
+        } else {
+            char[] array = (char[]) container;
+            int cardinality = cardinalities[index];
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+        }
+        size--;
+        if (--cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint in bytes, counting array payloads and headers.
+     */
+    public long sizeInBytes() {
+        long bytes = 16 + 3 * 16L + keys.length * 8L + containers.length * 4L + cardinalities.length * 4L;
+        for (Object container : containers) {
+            bytes += 16 + (container instanceof long[] bitmap ? bitmap.length * 8L : ((char[]) container).length * 2L);
+        }
+        return bytes;
+    }
+
+    private int insertContainer(int index, long key) {
+        int length = keys.length;
+        long[] newKeys = new long[length + 1];
+        Object[] newContainers = new Object[length + 1];
+        int[] newCardinalities = new int[length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(cardinalities, 0, newCardinalities, 0, index);
+        System.arraycopy(keys, index, newKeys, index + 1, length - index);
+        System.arraycopy(containers, index, newContainers, index + 1, length - index);
+        System.arraycopy(cardinalities, index, newCardinalities, index + 1, length - index);
+        newKeys[index] = key;
+        newContainers[index] = new char[4];
+        keys = newKeys;
+        containers = newContainers;
+        cardinalities = newCardinalities;
+        return index;
+    }
+
+    private void removeContainer(int index) {
+        int length = keys.length;
+        long[] newKeys = new long[length - 1];
+        Object[] newContainers = new Object[length - 1];
+        int[] newCardinalities = new int[length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(cardinalities, 0, newCardinalities, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, length - index - 1);
+        System.arraycopy(containers, index + 1, newContainers, index, length - index - 1);
+        System.arraycopy(cardinalities, index + 1, newCardinalities, index, length - index - 1);
+        keys = newKeys;
+        containers = newContainers;
+        cardinalities = newCardinalities;
+    }
+
+    private static long[] toBitmap(char[] array, int cardinality) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            char low = array[i];
+            bitmap[low >>> 6] |= 1L << low;
+        }
+        return bitmap;
+    }
+
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] array = new char[cardinality];
+        int position = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                array[position++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return array;
+    }
+}
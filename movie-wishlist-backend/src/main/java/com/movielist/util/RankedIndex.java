@@ -0,0 +1,216 @@
+package com.movielist.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids ordered by a long score, highest first with ties broken by the lower id, in an
+ * indexable skip list. Every forward link records how many positions it skips, so
+ * updates, the rank of an id and the entry at a given rank all take O(log n), and a page
+ * of k entries from any offset takes O(log n + k). Not thread-safe; callers synchronize.
+ */
+public class RankedIndex {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(0, 0, MAX_LEVEL);
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private int level = 1;
+    private int length;
+
+    /**
+     * An id with its score and 1-based rank.
+     */
+    public record Entry(long id, long score, int rank) {
+    }
+
+    public void put(long id, long score) {
+        Node existing = nodes.get(id);
+        if (existing != null) {
+            if (existing.score == score) {
+                return;
+            }
+            unlink(existing);
+        }
+        nodes.put(id, insert(id, score));
+    }
+
+    /**
+     * Adds delta to the id's score, treating an absent id as score 0.
+     *
+     * @return the new score
+     */
+    public long add(long id, long delta) {
+        Node existing = nodes.get(id);
+        long score = (existing != null ? existing.score : 0) + delta;
+        put(id, score);
+        return score;
+    }
+
+    public boolean remove(long id) {
+        Node existing = nodes.remove(id);
+        if (existing == null) {
+            return false;
+        }
+        unlink(existing);
+        return true;
+    }
+
+    public boolean contains(long id) {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * The id's entry, or null if it is not in the index.
+     */
+    public Entry entryOf(long id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return null;
+        }
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !precedes(node, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x == node) {
+                break;
+            }
+        }
+        return new Entry(node.id, node.score, rank);
+    }
+
+    /**
+     * Up to limit entries starting at the given 0-based offset.
+     */
+    public List<Entry> range(int offset, int limit) {
+        List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+        if (offset < 0 || offset >= size() || limit <= 0) {
+            return entries;
+        }
+        int rank = offset + 1;
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+        for (; x != null && entries.size() < limit; x = x.next[0]) {
+            entries.add(new Entry(x.id, x.score, rank++));
+        }
+        return entries;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public void clear() {
+        nodes.clear();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+        length = 0;
+    }
+
+    // Whether a sorts before b: higher score first, then lower id
+    private static boolean precedes(Node a, Node b) {
+        return a.score > b.score || (a.score == b.score && a.id < b.id);
+    }
+
+    private static boolean precedes(Node a, long score, long id) {
+        return a.score > score || (a.score == score && a.id < id);
+    }
+
+    private Node insert(long id, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rankAt = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rankAt[i] = i == level - 1 ? 0 : rankAt[i + 1];
+            while (x.next[i] != null && precedes(x.next[i], score, id)) {
+                rankAt[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rankAt[i] = 0;
+                update[i] = head;
+                head.span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(id, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rankAt[0] - rankAt[i]);
+            update[i].span[i] = rankAt[0] - rankAt[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+        return node;
+    }
+
+    private void unlink(Node node) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && precedes(x.next[i], node)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    // Each level holds about a quarter of the nodes of the level below
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        while (nodeLevel < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    private static final class Node {
+        private final long id;
+        private final long score;
+        private final Node[] next;
+        private final int[] span;
+
+        Node(long id, long score, int nodeLevel) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[nodeLevel];
+            this.span = new int[nodeLevel];
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.movielist.util;
+
+import jakarta.persistence.SequenceGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+
+/**
+ * Hands out ids of an entity for rows inserted with plain SQL, the way Hibernate's pooled-lo
+ * optimizer does: each value v fetched from the sequence reserves the ids v to
+ * v + allocationSize - 1 for whoever fetched it. The sequence and the allocation size are
+ * read from the entity's {@link SequenceGenerator}, so these ids can never collide with the
+ * ones Hibernate assigns when it saves the same entity.
+ */
+public class SequenceBlockAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueSql;
+    private final int allocationSize;
+
+    // Next id of the current block, and how many are left in it
+    private long nextId;
+    private int idsLeft;
+
+    public SequenceBlockAllocator(JdbcTemplate jdbcTemplate, Class<?> entityType) {
+        SequenceGenerator generator = findGenerator(entityType);
+        String sequenceName = generator.sequenceName().isEmpty() ? generator.name() : generator.sequenceName();
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueSql = "SELECT nextval('" + sequenceName + "')";
+        this.allocationSize = generator.allocationSize();
+    }
+
+    public synchronized long next() {
+        if (idsLeft == 0) {
+            nextId = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+            idsLeft = allocationSize;
+        }
+        idsLeft--;
+        return nextId++;
+    }
+
+    private static SequenceGenerator findGenerator(Class<?> entityType) {
+        for (Field field : entityType.getDeclaredFields()) {
+            SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+            if (generator != null) {
+                return generator;
+            }
+        }
+        SequenceGenerator generator = entityType.getAnnotation(SequenceGenerator.class);
+        if (generator == null) {
+            throw new IllegalArgumentException(entityType.getSimpleName() + " has no @SequenceGenerator");
+        }
+        return generator;
+    }
+}
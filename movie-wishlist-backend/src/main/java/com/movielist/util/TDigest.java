@@ -0,0 +1,153 @@
+package com.movielist.util;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for streaming quantile estimates. Values are buffered and periodically
+ * merged into a sorted list of centroids whose sizes follow the k1 scale function, so
+ * centroids near the tails stay small and extreme quantiles stay accurate. Memory is
+ * bounded by the compression parameter, not by the number of values. Values can only be
+ * added, never removed. Not thread-safe; callers synchronize.
+ */
+public class TDigest {
+
+    private final double compression;
+    private final double[] buffer;
+    private int buffered;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int centroids;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        this.buffer = new double[(int) (5 * compression)];
+    }
+
+    public void add(double value) {
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (buffered == buffer.length) {
+            merge();
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Estimated value at quantile q (0..1), or NaN when empty.
+     */
+    public double quantile(double q) {
+        merge();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double rank = q * count;
+        // Each centroid's mean sits at the middle of the ranks it covers
+        double left = weights[0] / 2;
+        if (rank < left) {
+            return interpolate(min, means[0], rank / left);
+        }
+        for (int i = 0; i < centroids - 1; i++) {
+            double right = left + (weights[i] + weights[i + 1]) / 2;
+            if (rank < right) {
+                return interpolate(means[i], means[i + 1], (rank - left) / (right - left));
+            }
+            left = right;
+        }
+        double tail = count - left;
+        return tail > 0 ? interpolate(means[centroids - 1], max, Math.min(1, (rank - left) / tail)) : max;
+    }
+
+    /**
+     * Bound on the rank error of {@link #quantile(double)} at q, as a fraction of the
+     * count: half the weight of the centroid covering that rank.
+     */
+    public double rankError(double q) {
+        merge();
+        if (count == 0) {
+            return 0.0;
+        }
+        double rank = q * count;
+        double covered = 0;
+        for (int i = 0; i < centroids; i++) {
+            covered += weights[i];
+            if (rank <= covered) {
+                return weights[i] > 1 ? weights[i] / 2 / count : 0.0;
+            }
+        }
+        return 0.0;
+    }
+
+    public int sizeInBytes() {
+        return 64 + buffer.length * 8 + (means.length + weights.length) * 8;
+    }
+
+    private void merge() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        int total = centroids + buffered;
+        double[] sortedMeans = new double[total];
+        double[] sortedWeights = new double[total];
+        for (int i = 0, c = 0, b = 0; i < total; i++) {
+            if (b == buffered || (c < centroids && means[c] <= buffer[b])) {
+                sortedMeans[i] = means[c];
+                sortedWeights[i] = weights[c++];
+            } else {
+                sortedMeans[i] = buffer[b++];
+                sortedWeights[i] = 1;
+            }
+        }
+        buffered = 0;
+
+        double[] mergedMeans = new double[total];
+        double[] mergedWeights = new double[total];
+        int out = 0;
+        mergedMeans[0] = sortedMeans[0];
+        mergedWeights[0] = sortedWeights[0];
+        double weightSoFar = 0;
+        double weightLimit = count * qOf(kOf(0) + 1);
+        for (int i = 1; i < total; i++) {
+            if (weightSoFar + mergedWeights[out] + sortedWeights[i] <= weightLimit) {
+                mergedWeights[out] += sortedWeights[i];
+                mergedMeans[out] += (sortedMeans[i] - mergedMeans[out]) * sortedWeights[i] / mergedWeights[out];
+            } else {
+                weightSoFar += mergedWeights[out];
+                out++;
+                mergedMeans[out] = sortedMeans[i];
+                mergedWeights[out] = sortedWeights[i];
+                weightLimit = count * qOf(kOf(weightSoFar / count) + 1);
+            }
+        }
+        centroids = out + 1;
+        means = Arrays.copyOf(mergedMeans, centroids);
+        weights = Arrays.copyOf(mergedWeights, centroids);
+    }
+
+    // k1 scale function and its inverse
+    private double kOf(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double qOf(double k) {
+        if (k >= compression / 4) {
+            return 1.0;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+}
@@ -0,0 +1,172 @@
+package com.movielist.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One-pass aggregation of watched-movie facts held in parallel primitive columns: a genre
+ * mask (one bit per genre, see {@link GenreDictionary}), a runtime and a rating per row,
+ * with {@link #NONE} standing for a missing runtime or rating. Produces overall and
+ * per-genre counts, runtime sums and rating sums without boxing or intermediate
+ * collections; a movie with several genres counts towards each of them. Large inputs are
+ * split across the common fork-join pool and the partial aggregates merged.
+ */
+public class WatchAggregator {
+
+    public static final int NONE = -1;
+
+    // Below this many rows splitting costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final long[] counts = new long[GenreDictionary.MAX_GENRES];
+    private final long[] runtimeSums = new long[GenreDictionary.MAX_GENRES];
+    private final long[] ratingSums = new long[GenreDictionary.MAX_GENRES];
+    private final long[] ratingCounts = new long[GenreDictionary.MAX_GENRES];
+    private long count;
+    private long runtimeSum;
+    private long ratingSum;
+    private long ratingCount;
+
+    public static WatchAggregator aggregate(long[] genreMasks, int[] runtimes, int[] ratings, int size) {
+        return aggregate(genreMasks, runtimes, ratings, 0, size);
+    }
+
+    public static WatchAggregator aggregate(long[] genreMasks, int[] runtimes, int[] ratings, int from, int to) {
+        WatchAggregator aggregator = new WatchAggregator();
+        for (int i = from; i < to; i++) {
+            aggregator.add(genreMasks[i], runtimes[i], ratings[i]);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Same result as {@link #aggregate(long[], int[], int[], int)}, computed in parallel
+     * when the input is large enough to benefit.
+     */
+    public static WatchAggregator aggregateParallel(long[] genreMasks, int[] runtimes, int[] ratings, int size) {
+        if (size < PARALLEL_THRESHOLD) {
+            return aggregate(genreMasks, runtimes, ratings, size);
+        }
+        return ForkJoinPool.commonPool().invoke(new AggregateTask(genreMasks, runtimes, ratings, 0, size));
+    }
+
+    public void add(long genreMask, int runtime, int rating) {
+        apply(genreMask, runtime, rating, 1);
+    }
+
+    /**
+     * Takes back a row added earlier, for totals that are maintained incrementally.
+     */
+    public void remove(long genreMask, int runtime, int rating) {
+        apply(genreMask, runtime, rating, -1);
+    }
+
+    /**
+     * Adds a group of rows that share one genre mask, as returned by a GROUP BY query.
+     */
+    public void addGroup(long genreMask, long groupCount, long groupRuntimeSum, long groupRatingSum, long groupRatingCount) {
+        count += groupCount;
+        runtimeSum += groupRuntimeSum;
+        ratingSum += groupRatingSum;
+        ratingCount += groupRatingCount;
+        for (long remaining = genreMask; remaining != 0; remaining &= remaining - 1) {
+            int genre = Long.numberOfTrailingZeros(remaining);
+            counts[genre] += groupCount;
+            runtimeSums[genre] += groupRuntimeSum;
+            ratingSums[genre] += groupRatingSum;
+            ratingCounts[genre] += groupRatingCount;
+        }
+    }
+
+    public WatchAggregator merge(WatchAggregator other) {
+        for (int genre = 0; genre < counts.length; genre++) {
+            counts[genre] += other.counts[genre];
+            runtimeSums[genre] += other.runtimeSums[genre];
+            ratingSums[genre] += other.ratingSums[genre];
+            ratingCounts[genre] += other.ratingCounts[genre];
+        }
+        count += other.count;
+        runtimeSum += other.runtimeSum;
+        ratingSum += other.ratingSum;
+        ratingCount += other.ratingCount;
+        return this;
+    }
+
+    public WatchAggregator copy() {
+        return new WatchAggregator().merge(this);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long runtimeSum() {
+        return runtimeSum;
+    }
+
+    public double averageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+
+    public long count(int genre) {
+        return counts[genre];
+    }
+
+    public long runtimeSum(int genre) {
+        return runtimeSums[genre];
+    }
+
+    public double averageRating(int genre) {
+        return ratingCounts[genre] > 0 ? (double) ratingSums[genre] / ratingCounts[genre] : 0.0;
+    }
+
+    private void apply(long genreMask, int runtime, int rating, int sign) {
+        count += sign;
+        if (runtime != NONE) {
+            runtimeSum += (long) sign * runtime;
+        }
+        if (rating != NONE) {
+            ratingSum += (long) sign * rating;
+            ratingCount += sign;
+        }
+        for (long remaining = genreMask; remaining != 0; remaining &= remaining - 1) {
+            int genre = Long.numberOfTrailingZeros(remaining);
+            counts[genre] += sign;
+            if (runtime != NONE) {
+                runtimeSums[genre] += (long) sign * runtime;
+            }
+            if (rating != NONE) {
+                ratingSums[genre] += (long) sign * rating;
+                ratingCounts[genre] += sign;
+            }
+        }
+    }
+
+    private static class AggregateTask extends RecursiveTask<WatchAggregator> {
+        private final long[] genreMasks;
+        private final int[] runtimes;
+        private final int[] ratings;
+        private final int from;
+        private final int to;
+
+        AggregateTask(long[] genreMasks, int[] runtimes, int[] ratings, int from, int to) {
+            this.genreMasks = genreMasks;
+            this.runtimes = runtimes;
+            this.ratings = ratings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected WatchAggregator compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return aggregate(genreMasks, runtimes, ratings, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(genreMasks, runtimes, ratings, from, middle);
+            left.fork();
+            WatchAggregator right = new AggregateTask(genreMasks, runtimes, ratings, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
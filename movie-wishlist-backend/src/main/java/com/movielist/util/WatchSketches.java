@@ -0,0 +1,104 @@
+package com.movielist.util;
+
+/**
+ * Incrementally maintained global watch statistics for the approximate analytics mode.
+ * Totals and per-genre counts are exact running sums. Distinct watchers, overall and per
+ * genre, come from HyperLogLog sketches, and rating and runtime percentiles come from
+ * t-digests. Answering reads this fixed-size state, so the cost does not depend on the
+ * number of movies.
+ *
+ * <p>The sketches cannot forget a value. Removed or changed watched rows therefore stay
+ * in them until the owner rebuilds the sketches from the source data, and
+ * {@link Estimate#staleEntries()} reports how many such rows there are.
+ */
+public class WatchSketches {
+
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final int HLL_PRECISION = 12;
+    private static final double COMPRESSION = 100;
+
+    private final WatchAggregator totals = new WatchAggregator();
+    private final HyperLogLog watchers = new HyperLogLog(HLL_PRECISION);
+    private final HyperLogLog[] watchersByGenre = new HyperLogLog[GenreDictionary.MAX_GENRES];
+    private final TDigest ratings = new TDigest(COMPRESSION);
+    private final TDigest runtimes = new TDigest(COMPRESSION);
+    private long wishlistCount;
+    private long staleEntries;
+
+    /**
+     * A consistent copy of the estimates. Per-genre arrays are indexed by genre bit and
+     * quantile arrays follow {@link #QUANTILES}.
+     */
+    public record Estimate(long wishlistCount,
+                           WatchAggregator watched,
+                           long distinctWatchers,
+                           long[] distinctWatchersByGenre,
+                           double distinctRelativeError,
+                           double[] ratingQuantiles,
+                           double ratingRankError,
+                           double[] runtimeQuantiles,
+                           double runtimeRankError,
+                           long staleEntries) {
+    }
+
+    public synchronized void addWatched(long userId, long genreMask, int runtime, int rating) {
+        totals.add(genreMask, runtime, rating);
+        watchers.add(userId);
+        for (long remaining = genreMask; remaining != 0; remaining &= remaining - 1) {
+            int genre = Long.numberOfTrailingZeros(remaining);
+            if (watchersByGenre[genre] == null) {
+                watchersByGenre[genre] = new HyperLogLog(HLL_PRECISION);
+            }
+            watchersByGenre[genre].add(userId);
+        }
+        if (rating != WatchAggregator.NONE) {
+            ratings.add(rating);
+        }
+        if (runtime != WatchAggregator.NONE) {
+            runtimes.add(runtime);
+        }
+    }
+
+    public synchronized void removeWatched(long genreMask, int runtime, int rating) {
+        totals.remove(genreMask, runtime, rating);
+        staleEntries++;
+    }
+
+    public synchronized void addWishlist(long delta) {
+        wishlistCount += delta;
+    }
+
+    public synchronized Estimate estimate() {
+        long[] byGenre = new long[GenreDictionary.MAX_GENRES];
+        for (int genre = 0; genre < byGenre.length; genre++) {
+            byGenre[genre] = watchersByGenre[genre] != null ? watchersByGenre[genre].estimate() : 0;
+        }
+        double[] ratingQuantiles = new double[QUANTILES.length];
+        double[] runtimeQuantiles = new double[QUANTILES.length];
+        double ratingRankError = 0;
+        double runtimeRankError = 0;
+        for (int i = 0; i < QUANTILES.length; i++) {
+            ratingQuantiles[i] = ratings.quantile(QUANTILES[i]);
+            runtimeQuantiles[i] = runtimes.quantile(QUANTILES[i]);
+            ratingRankError = Math.max(ratingRankError, ratings.rankError(QUANTILES[i]));
+            runtimeRankError = Math.max(runtimeRankError, runtimes.rankError(QUANTILES[i]));
+        }
+        return new Estimate(wishlistCount, totals.copy(), watchers.estimate(), byGenre, watchers.relativeStandardError(),
+                ratingQuantiles, ratingRankError, runtimeQuantiles, runtimeRankError, staleEntries);
+    }
+
+    public synchronized long staleEntries() {
+        return staleEntries;
+    }
+
+    public synchronized long sizeInBytes() {
+        long size = 256 + watchers.sizeInBytes() + ratings.sizeInBytes() + runtimes.sizeInBytes();
+        for (HyperLogLog sketch : watchersByGenre) {
+            if (sketch != null) {
+                size += sketch.sizeInBytes();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,128 @@
+package com.movielist.benchmark;
+
+import com.movielist.entity.Movie;
+import com.movielist.util.GenreDictionary;
+import com.movielist.util.WatchAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Compares per-genre statistics computed the previous way (streams grouping a
+ * List&lt;Movie&gt; into a Map of lists) with WatchAggregator over primitive columns,
+ * sequentially and in parallel, on synthetic data. Needs no database or application
+ * context. Skipped unless run explicitly:
+ * {@code mvn test -Dtest=AggregationBenchmark -Dbenchmark=true -DargLine=-Xmx4g}; large
+ * sizes need a heap of a few gigabytes for the Movie objects of the baseline.
+ */
+@SpringJUnitConfig
+@TestPropertySource(locations = "classpath:application-aggregation-benchmark.properties")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AggregationBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(AggregationBenchmark.class);
+
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Sci-Fi", "Romance",
+            "Thriller", "Documentary", "Animation", "Fantasy", "Crime", "Western"};
+
+    @Value("${movielist.benchmark.aggregation-sizes:10000,1000000}")
+    private int[] sizes;
+
+    @Value("${movielist.benchmark.warmup-iterations:5}")
+    private int warmupIterations;
+
+    @Value("${movielist.benchmark.iterations:10}")
+    private int iterations;
+
+    private volatile Object sink;
+
+    // Only the benchmark's own properties are needed, not the application
+    @Configuration
+    static class Config {
+    }
+
+    @Test
+    void compareGenreAggregations() {
+        GenreDictionary genres = new GenreDictionary();
+        for (int bit = 0; bit < GENRES.length; bit++) {
+            genres.put(bit, GENRES[bit]);
+        }
+        for (int size : sizes) {
+            Random random = new Random(42);
+            List<Movie> movies = new ArrayList<>(size);
+            long[] genreMasks = new long[size];
+            int[] runtimes = new int[size];
+            int[] ratings = new int[size];
+            for (int i = 0; i < size; i++) {
+                Movie movie = new Movie();
+                movie.setGenre(random.nextInt(20) == 0 ? null : GENRES[random.nextInt(GENRES.length)]);
+                movie.setRuntime(random.nextInt(10) == 0 ? null : 70 + random.nextInt(120));
+                movie.setRating(random.nextInt(3) == 0 ? null : 1 + random.nextInt(5));
+                movies.add(movie);
+                genreMasks[i] = genres.maskOf(movie.getGenre());
+                runtimes[i] = movie.getRuntime() != null ? movie.getRuntime() : WatchAggregator.NONE;
+                ratings[i] = movie.getRating() != null ? movie.getRating() : WatchAggregator.NONE;
+            }
+
+            double streams = measure(() -> streamGenreStats(movies));
+            double sequential = measure(() -> WatchAggregator.aggregate(genreMasks, runtimes, ratings, size));
+            double parallel = measure(() -> WatchAggregator.aggregateParallel(genreMasks, runtimes, ratings, size));
+            logger.info("{} rows: streams {} ms, one-pass {} ms ({}x), one-pass parallel {} ms ({}x)",
+                    size, format(streams), format(sequential), format(streams / sequential),
+                    format(parallel), format(streams / parallel));
+        }
+    }
+
+    // The implementation AnalyticsService used before WatchAggregator
+    private Map<String, double[]> streamGenreStats(List<Movie> movies) {
+        long totalMovies = movies.size();
+        Map<String, List<Movie>> moviesByGenre = movies.stream()
+                .filter(movie -> movie.getGenre() != null && !movie.getGenre().isEmpty())
+                .collect(Collectors.groupingBy(Movie::getGenre));
+        return moviesByGenre.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+            long count = entry.getValue().size();
+            double averageRating = entry.getValue().stream()
+                    .filter(movie -> movie.getRating() != null)
+                    .mapToInt(Movie::getRating)
+                    .average()
+                    .orElse(0.0);
+            long watchTime = entry.getValue().stream()
+                    .filter(movie -> movie.getRuntime() != null)
+                    .mapToLong(Movie::getRuntime)
+                    .sum();
+            return new double[]{count, (double) count / totalMovies * 100, averageRating, watchTime};
+        }));
+    }
+
+    // Median wall time in milliseconds after warm-up
+    private double measure(Supplier<Object> work) {
+        for (int i = 0; i < warmupIterations; i++) {
+            sink = work.get();
+        }
+        double[] samples = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink = work.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[iterations / 2];
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+}
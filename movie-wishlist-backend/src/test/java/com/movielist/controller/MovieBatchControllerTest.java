@@ -0,0 +1,115 @@
+package com.movielist.controller;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.repository.MovieRepository;
+import com.movielist.repository.UserRepository;
+import com.movielist.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MovieBatchControllerTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private Movie mine;
+    private Movie theirs;
+
+    @BeforeEach
+    void createMovies() {
+        mine = movieRepository.save(movie(userService.getOrCreateDefaultUser(), "Mine"));
+        User other = new User();
+        other.setUsername("other" + USERS.incrementAndGet());
+        other.setEmail(other.getUsername() + "@example.com");
+        other.setPassword("secret");
+        other.setRole(User.Role.USER);
+        theirs = movieRepository.save(movie(userRepository.save(other), "Theirs"));
+    }
+
+    @Test
+    void deleteOfAnotherUsersMovieIsForbiddenAndDeletesNothing() throws Exception {
+        mockMvc.perform(json(post("/api/movies/batch/delete"), "{\"ids\":[" + mine.getId() + "," + theirs.getId() + "]}"))
+                .andExpect(status().isForbidden());
+        assertTrue(movieRepository.existsById(mine.getId()));
+        assertTrue(movieRepository.existsById(theirs.getId()));
+    }
+
+    @Test
+    void statusChangeOfAnotherUsersMovieIsForbiddenAndChangesNothing() throws Exception {
+        mockMvc.perform(json(put("/api/movies/batch/status"), "{\"ids\":[" + mine.getId() + "," + theirs.getId() + "],\"status\":\"WATCHED\"}"))
+                .andExpect(status().isForbidden());
+        assertEquals(Movie.Status.WISHLIST, movieRepository.findById(mine.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void markWatchedOfAnotherUsersMovieIsForbidden() throws Exception {
+        mockMvc.perform(json(put("/api/movies/batch/mark-watched"), "{\"ids\":[" + theirs.getId() + "],\"rating\":4}"))
+                .andExpect(status().isForbidden());
+        assertEquals(Movie.Status.WISHLIST, movieRepository.findById(theirs.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void nullOrMissingIdsAreBadRequests() throws Exception {
+        mockMvc.perform(json(put("/api/movies/batch/mark-watched"), "{\"ids\":[" + mine.getId() + ",null]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(json(post("/api/movies/batch/delete"), "{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(json(put("/api/movies/batch/status"), "{\"ids\":[" + mine.getId() + "]}"))
+                .andExpect(status().isBadRequest());
+        assertTrue(movieRepository.existsById(mine.getId()));
+    }
+
+    @Test
+    void ownMoviesAreUpdated() throws Exception {
+        mockMvc.perform(json(put("/api/movies/batch/mark-watched"), "{\"ids\":[" + mine.getId() + "],\"rating\":4}"))
+                .andExpect(status().isOk());
+        Movie watched = movieRepository.findById(mine.getId()).orElseThrow();
+        assertEquals(Movie.Status.WATCHED, watched.getStatus());
+        assertEquals(4, watched.getRating());
+
+        mockMvc.perform(json(post("/api/movies/batch/delete"), "{\"ids\":[" + mine.getId() + "]}"))
+                .andExpect(status().isOk());
+        assertTrue(movieRepository.findById(mine.getId()).isEmpty());
+    }
+
+    private static MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private static Movie movie(User owner, String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setGenre("Drama");
+        movie.setStatus(Movie.Status.WISHLIST);
+        movie.setUser(owner);
+        return movie;
+    }
+}
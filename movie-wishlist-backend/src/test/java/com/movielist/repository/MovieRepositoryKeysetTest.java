@@ -0,0 +1,121 @@
+package com.movielist.repository;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class MovieRepositoryKeysetTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User owner;
+    private final List<Row> rows = new ArrayList<>();
+
+    // Ten movies over four distinct updated_at values, so most pages end inside a tie
+    @BeforeEach
+    void createMovies() {
+        owner = entityManager.persist(user("owner"));
+        User other = entityManager.persist(user("other"));
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 10; i++) {
+            Movie movie = entityManager.persist(movie(owner, "Movie " + i, i % 2 == 0 ? Movie.Status.WATCHED : Movie.Status.WISHLIST));
+            Instant updatedAt = base.plusSeconds(i % 4);
+            setUpdatedAt(movie, updatedAt);
+            rows.add(new Row(movie.getId(), movie.getStatus(), updatedAt));
+        }
+        // Another user's movie shares a timestamp but must never show up
+        setUpdatedAt(entityManager.persist(movie(other, "Not mine", Movie.Status.WATCHED)), base);
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesVisitEveryMovieOnceNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        List<Movie> page = movieRepository.findFirstPageByUserId(owner.getId(), PageRequest.of(0, PAGE_SIZE));
+        while (!page.isEmpty()) {
+            page.forEach(movie -> seen.add(movie.getId()));
+            KeysetCursor cursor = next(page);
+            page = movieRepository.findPageByUserIdAfter(owner.getId(), cursor.updatedAt(), cursor.id(), PageRequest.of(0, PAGE_SIZE));
+        }
+        assertEquals(expectedOrder(null), seen);
+    }
+
+    @Test
+    void statusPagesVisitEveryMovieOfThatStatusOnce() {
+        List<Long> seen = new ArrayList<>();
+        List<Movie> page = movieRepository.findFirstPageByUserIdAndStatus(owner.getId(), Movie.Status.WATCHED, PageRequest.of(0, PAGE_SIZE));
+        while (!page.isEmpty()) {
+            page.forEach(movie -> seen.add(movie.getId()));
+            KeysetCursor cursor = next(page);
+            page = movieRepository.findPageByUserIdAndStatusAfter(owner.getId(), Movie.Status.WATCHED,
+                    cursor.updatedAt(), cursor.id(), PageRequest.of(0, PAGE_SIZE));
+        }
+        assertEquals(expectedOrder(Movie.Status.WATCHED), seen);
+    }
+
+    // The cursor after the page's last row, through its string form as clients see it
+    private static KeysetCursor next(List<Movie> page) {
+        Movie last = page.get(page.size() - 1);
+        return KeysetCursor.decode(new KeysetCursor(last.getUpdatedAt(), last.getId()).encode());
+    }
+
+    private List<Long> expectedOrder(Movie.Status status) {
+        return rows.stream()
+                .filter(row -> status == null || row.status() == status)
+                .sorted(Comparator.comparing(Row::updatedAt).thenComparing(Row::id).reversed())
+                .map(Row::id)
+                .toList();
+    }
+
+    // The entity callbacks stamp updated_at on every write, so tests set it with a bulk
+    // update and leave the managed entity alone
+    private void setUpdatedAt(Movie movie, Instant updatedAt) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Movie m SET m.updatedAt = :updatedAt WHERE m.id = :id")
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", movie.getId())
+                .executeUpdate();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user.setRole(User.Role.USER);
+        return user;
+    }
+
+    private static Movie movie(User owner, String title, Movie.Status status) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setGenre("Drama");
+        movie.setStatus(status);
+        movie.setUser(owner);
+        return movie;
+    }
+
+    private record Row(Long id, Movie.Status status, Instant updatedAt) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.movielist.service;
+
+import com.movielist.entity.User;
+import com.movielist.payload.MovieRequest;
+import com.movielist.repository.UserRepository;
+import com.movielist.util.RankedIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+class LeaderboardReloadTest {
+
+    private static final int MOVIES = 40;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Commits landing while a reload runs are either read by it or replayed by its catch-up,
+    // so however the two interleave the user ends with exactly one point per watched movie
+    @Test
+    void watchesDuringReloadsAreCountedOnce() throws Exception {
+        User user = new User();
+        user.setUsername("watcher");
+        user.setEmail("watcher@example.com");
+        user.setPassword("secret");
+        user.setRole(User.Role.USER);
+        User watcher = userRepository.save(user);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < MOVIES; i++) {
+                    MovieRequest request = new MovieRequest();
+                    request.setTitle("Watched " + i);
+                    request.setGenre("Drama");
+                    Long movieId = movieService.addMovie(request, watcher).getId();
+                    movieService.markAsWatched(movieId, 4, null, watcher);
+                }
+            });
+            while (!writer.isDone()) {
+                leaderboardService.reload();
+            }
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertScore(watcher.getId(), MOVIES);
+        leaderboardService.reload();
+        assertScore(watcher.getId(), MOVIES);
+    }
+
+    private void assertScore(long userId, long expected) {
+        RankedIndex.Entry entry = leaderboardService.rankOf(userId);
+        assertNotNull(entry, "user is not ranked");
+        assertEquals(expected, entry.score());
+    }
+}
@@ -0,0 +1,86 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.repository.MovieRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class LikedMovieCacheTest {
+
+    @Autowired
+    private LikedMovieCache likedMovieCache;
+
+    @Autowired
+    private SocialService socialService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+    private Long movieId;
+
+    // Each test starts with the user's bitmap loaded, so only the after-commit updates can change it
+    @BeforeEach
+    void createMovie() {
+        user = userService.getOrCreateDefaultUser();
+        Movie movie = new Movie();
+        movie.setTitle("Cached");
+        movie.setGenre("Drama");
+        movie.setStatus(Movie.Status.WISHLIST);
+        movie.setUser(user);
+        movieId = movieRepository.save(movie).getId();
+        assertFalse(likedMovieCache.isLiked(user.getId(), movieId));
+    }
+
+    @Test
+    void likeReachesTheCacheOnlyOnceCommitted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            socialService.likeMovie(movieId, user);
+            assertFalse(likedMovieCache.isLiked(user.getId(), movieId));
+        });
+        assertTrue(likedMovieCache.isLiked(user.getId(), movieId));
+    }
+
+    @Test
+    void rolledBackLikeNeverReachesTheCache() {
+        transactionTemplate.executeWithoutResult(status -> {
+            socialService.likeMovie(movieId, user);
+            status.setRollbackOnly();
+        });
+        assertFalse(likedMovieCache.isLiked(user.getId(), movieId));
+    }
+
+    @Test
+    void rolledBackUnlikeKeepsTheLike() {
+        socialService.likeMovie(movieId, user);
+        transactionTemplate.executeWithoutResult(status -> {
+            socialService.unlikeMovie(movieId, user);
+            status.setRollbackOnly();
+        });
+        assertTrue(likedMovieCache.isLiked(user.getId(), movieId));
+
+        socialService.unlikeMovie(movieId, user);
+        assertFalse(likedMovieCache.isLiked(user.getId(), movieId));
+    }
+
+    @Test
+    void invalidatedUserIsReloadedFromTheDatabase() {
+        socialService.likeMovie(movieId, user);
+        likedMovieCache.invalidate(user.getId());
+        assertTrue(likedMovieCache.isLiked(user.getId(), movieId));
+    }
+}
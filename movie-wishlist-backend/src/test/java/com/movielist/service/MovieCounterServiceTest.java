@@ -0,0 +1,106 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.repository.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MovieCounterServiceTest {
+
+    @Autowired
+    private MovieCounterService movieCounterService;
+
+    @Autowired
+    private SocialService socialService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private User user;
+    private Long movieId;
+
+    @BeforeEach
+    void createMovie() {
+        user = userService.getOrCreateDefaultUser();
+        Movie movie = new Movie();
+        movie.setTitle("Counted");
+        movie.setGenre("Drama");
+        movie.setStatus(Movie.Status.WISHLIST);
+        movie.setUser(user);
+        movieId = movieRepository.save(movie).getId();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void rolledBackLikeLeavesNoDelta() {
+        transactionTemplate.executeWithoutResult(status -> {
+            socialService.likeMovie(movieId, user);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, movieCounterService.pendingLikes(movieId));
+        assertEquals(0, flushedLikesCount());
+    }
+
+    // A recount while the like is uncommitted would miss it, and one between its commit
+    // and its delta would count it twice; reconcile must wait the transaction out
+    @Test
+    void reconcileWaitsForTransactionsThatRecordedADelta() throws Exception {
+        CountDownLatch liked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> writer = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            socialService.likeMovie(movieId, user);
+            liked.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(liked.await(10, TimeUnit.SECONDS));
+
+        Future<Long> reconcile = executor.submit(movieCounterService::reconcile);
+        Thread.sleep(300);
+        assertFalse(reconcile.isDone(), "reconcile ran while a like was uncommitted");
+
+        commit.countDown();
+        writer.get(10, TimeUnit.SECONDS);
+        reconcile.get(10, TimeUnit.SECONDS);
+        assertEquals(1, flushedLikesCount());
+    }
+
+    private long flushedLikesCount() {
+        movieCounterService.flush();
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM movies WHERE id = ?", Long.class, movieId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.movielist.service;
+
+import com.movielist.entity.Movie;
+import com.movielist.entity.User;
+import com.movielist.exception.ResourceNotFoundException;
+import com.movielist.repository.MovieRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SocialServiceLikeTest {
+
+    @Autowired
+    private SocialService socialService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private MovieCounterService movieCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Long movieId;
+
+    @BeforeEach
+    void createMovie() {
+        user = userService.getOrCreateDefaultUser();
+        Movie movie = new Movie();
+        movie.setTitle("Liked");
+        movie.setGenre("Drama");
+        movie.setStatus(Movie.Status.WISHLIST);
+        movie.setUser(user);
+        movieId = movieRepository.save(movie).getId();
+    }
+
+    @Test
+    void repeatedLikeStoresAndCountsOneLike() {
+        assertTrue(socialService.likeMovie(movieId, user));
+        assertFalse(socialService.likeMovie(movieId, user));
+
+        assertEquals(1, likeRows());
+        assertEquals(1, flushedLikesCount());
+    }
+
+    @Test
+    void repeatedUnlikeRemovesAndCountsOnce() {
+        socialService.likeMovie(movieId, user);
+        assertTrue(socialService.unlikeMovie(movieId, user));
+        assertFalse(socialService.unlikeMovie(movieId, user));
+
+        assertEquals(0, likeRows());
+        assertEquals(0, flushedLikesCount());
+        // Liking again after an unlike is a new like
+        assertTrue(socialService.likeMovie(movieId, user));
+        assertEquals(1, flushedLikesCount());
+    }
+
+    @Test
+    void likeOfMissingMovieIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> socialService.likeMovie(Long.MAX_VALUE, user));
+    }
+
+    private long likeRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE movie_id = ?", Long.class, movieId);
+    }
+
+    private long flushedLikesCount() {
+        movieCounterService.flush();
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM movies WHERE id = ?", Long.class, movieId);
+    }
+}
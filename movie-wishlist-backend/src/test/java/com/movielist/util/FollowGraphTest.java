@@ -0,0 +1,111 @@
+package com.movielist.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FollowGraphTest {
+
+    private static final int USERS = 300;
+
+    @Test
+    void emptyGraphRoundTrips() throws IOException {
+        FollowGraph copy = roundTrip(new FollowGraph());
+        assertEquals(0, copy.edgeCount());
+        assertEquals(0, copy.userCount());
+    }
+
+    @Test
+    void randomGraphRoundTripsWithBothDirections() throws IOException {
+        FollowGraph graph = new FollowGraph();
+        Random random = new Random(17);
+        for (int i = 0; i < 5_000; i++) {
+            long follower = 1 + random.nextInt(USERS);
+            long following = 1 + random.nextInt(USERS);
+            if (follower != following) {
+                graph.add(follower, following);
+            }
+        }
+        // Removals leave users with no edges behind, which the snapshot must not need
+        for (int i = 0; i < 1_000; i++) {
+            graph.remove(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+        }
+
+        FollowGraph copy = roundTrip(graph);
+        assertEquals(graph.edgeCount(), copy.edgeCount());
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertArrayEquals(graph.following(userId), copy.following(userId), "following of " + userId);
+            assertArrayEquals(graph.followers(userId), copy.followers(userId), "followers of " + userId);
+        }
+        // The copy is a working graph, not just a view of the snapshot
+        long follower = graph.following(1).length > 0 ? 1 : 2;
+        long target = USERS + 1;
+        assertTrue(copy.add(follower, target));
+        assertArrayEquals(new long[]{follower}, copy.followers(target));
+        assertFalse(graph.contains(follower, target));
+    }
+
+    @Test
+    void edgeListBuildMatchesIncrementalBuild() {
+        long[] followers = {1, 1, 2, 3, 1, 3};
+        long[] followings = {2, 3, 3, 1, 2, 2};
+        FollowGraph built = FollowGraph.of(followers, followings, followers.length);
+
+        FollowGraph added = new FollowGraph();
+        for (int i = 0; i < followers.length; i++) {
+            added.add(followers[i], followings[i]);
+        }
+        // The duplicate 1 -> 2 edge is kept once
+        assertEquals(5, built.edgeCount());
+        assertEquals(added.edgeCount(), built.edgeCount());
+        for (long userId = 1; userId <= 3; userId++) {
+            assertArrayEquals(added.following(userId), built.following(userId));
+            assertArrayEquals(added.followers(userId), built.followers(userId));
+        }
+        assertTrue(built.isMutual(1, 3));
+    }
+
+    @Test
+    void rejectsForeignAndCorruptSnapshots() throws IOException {
+        assertThrows(IOException.class, () -> FollowGraph.readFrom(input(new byte[]{0, 0, 0, 0, 0, 0, 0, 0})));
+
+        FollowGraph graph = new FollowGraph();
+        graph.add(1, 2);
+        graph.add(1, 3);
+        byte[] snapshot = write(graph);
+        assertThrows(IOException.class, () -> FollowGraph.readFrom(input(Arrays.copyOf(snapshot, snapshot.length - 4))));
+
+        // An edge count that disagrees with the adjacency lists
+        byte[] tampered = snapshot.clone();
+        tampered[11] = 3;
+        assertThrows(IOException.class, () -> FollowGraph.readFrom(input(tampered)));
+    }
+
+    private static FollowGraph roundTrip(FollowGraph graph) throws IOException {
+        return FollowGraph.readFrom(input(write(graph)));
+    }
+
+    private static byte[] write(FollowGraph graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            graph.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
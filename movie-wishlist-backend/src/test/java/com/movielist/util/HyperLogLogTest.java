@@ -0,0 +1,68 @@
+package com.movielist.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog(12).estimate());
+    }
+
+    // The hash is fixed, so these runs are deterministic; three standard errors leaves room
+    // for any reasonable hash while still catching a broken estimator
+    @Test
+    void estimatesStayWithinThreeStandardErrors() {
+        for (int precision : new int[]{10, 14}) {
+            for (long distinct : new long[]{100, 1_000, 50_000, 500_000}) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (long value = 1; value <= distinct; value++) {
+                    sketch.add(value);
+                }
+                double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+                assertTrue(error <= 3 * sketch.relativeStandardError(),
+                        "p=" + precision + " n=" + distinct + " estimate=" + sketch.estimate());
+            }
+        }
+    }
+
+    @Test
+    void repeatedValuesDoNotChangeTheEstimate() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long value = 1; value <= 10_000; value++) {
+            sketch.add(value);
+        }
+        long estimate = sketch.estimate();
+        for (long value = 1; value <= 10_000; value++) {
+            sketch.add(value);
+        }
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    void mergeEqualsOneSketchOfTheUnion() {
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long value = 1; value <= 30_000; value++) {
+            (value % 3 == 0 ? right : left).add(value);
+            union.add(value);
+        }
+        // Overlapping values must not be counted twice
+        for (long value = 1; value <= 1_000; value++) {
+            right.add(value);
+        }
+        assertEquals(union.estimate(), left.merge(right).estimate());
+    }
+
+    @Test
+    void rejectsInvalidPrecisions() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).merge(new HyperLogLog(12)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.movielist.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putGetAndOverwrite() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(7, 1);
+        map.put(7, 2);
+        assertEquals(2, map.get(7, -1));
+        assertEquals(-1, map.get(8, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void rejectsTheReservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap().put(0, 1));
+    }
+
+    // Removing from the middle of a probe run must not hide the keys after it
+    @Test
+    void keysStayReachableAfterDeletesInTheirProbeRun() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        // At most half full before resizing, so these share long runs in 64 slots
+        for (long key = 1; key <= 32; key++) {
+            map.put(key, (int) key * 10);
+        }
+        for (long key = 1; key <= 32; key += 2) {
+            assertTrue(map.remove(key));
+            assertFalse(map.remove(key));
+        }
+        for (long key = 1; key <= 32; key++) {
+            assertEquals(key % 2 == 0 ? (int) key * 10 : -1, map.get(key, -1), "key " + key);
+        }
+        assertEquals(16, map.size());
+
+        // Reinserting after the deletes must not create duplicates
+        for (long key = 1; key <= 32; key++) {
+            map.put(key, (int) key);
+        }
+        assertEquals(32, map.size());
+        for (long key = 1; key <= 32; key++) {
+            assertEquals((int) key, map.get(key, -1));
+        }
+    }
+
+    @Test
+    void matchesHashMapThroughRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        // A small key space keeps the table dense, so most removals shift a run
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(200);
+            if (random.nextBoolean()) {
+                int value = random.nextInt();
+                map.put(key, value);
+                expected.put(key, value);
+            } else {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+            if (i % 1000 == 0) {
+                for (long probe = 1; probe <= 200; probe++) {
+                    assertEquals(expected.getOrDefault(probe, 0), map.get(probe, 0), "key " + probe);
+                }
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
@@ -0,0 +1,124 @@
+package com.movielist.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedIndexTest {
+
+    // Highest score first, then lower id, the same order as the index
+    private static final Comparator<Map.Entry<Long, Long>> ORDER =
+            Comparator.<Map.Entry<Long, Long>>comparingLong(Map.Entry::getValue).reversed()
+                    .thenComparingLong(Map.Entry::getKey);
+
+    @Test
+    void ranksByScoreThenLowerId() {
+        RankedIndex index = new RankedIndex();
+        index.put(3, 10);
+        index.put(1, 10);
+        index.put(2, 20);
+        index.put(4, 5);
+
+        assertEquals(List.of(
+                new RankedIndex.Entry(2, 20, 1),
+                new RankedIndex.Entry(1, 10, 2),
+                new RankedIndex.Entry(3, 10, 3),
+                new RankedIndex.Entry(4, 5, 4)), index.range(0, 10));
+        assertEquals(new RankedIndex.Entry(3, 10, 3), index.entryOf(3));
+    }
+
+    @Test
+    void addTreatsAbsentIdsAsZero() {
+        RankedIndex index = new RankedIndex();
+        assertEquals(-2, index.add(7, -2));
+        assertEquals(3, index.add(7, 5));
+        assertEquals(1, index.size());
+        assertEquals(new RankedIndex.Entry(7, 3, 1), index.entryOf(7));
+    }
+
+    @Test
+    void removeAndClearForgetIds() {
+        RankedIndex index = new RankedIndex();
+        index.put(1, 1);
+        index.put(2, 2);
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertFalse(index.contains(1));
+        assertNull(index.entryOf(1));
+        assertEquals(new RankedIndex.Entry(2, 2, 1), index.entryOf(2));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.range(0, 10).isEmpty());
+        index.put(5, 1);
+        assertEquals(List.of(new RankedIndex.Entry(5, 1, 1)), index.range(0, 10));
+    }
+
+    @Test
+    void rangeHandlesOutOfBoundsRequests() {
+        RankedIndex index = new RankedIndex();
+        for (long id = 1; id <= 5; id++) {
+            index.put(id, id);
+        }
+        assertTrue(index.range(-1, 3).isEmpty());
+        assertTrue(index.range(5, 3).isEmpty());
+        assertTrue(index.range(0, 0).isEmpty());
+        assertEquals(List.of(new RankedIndex.Entry(1, 1, 5)), index.range(4, 10));
+    }
+
+    // Every rank and every page must agree with a plain sort after many random moves,
+    // which only holds if the spans stay right through inserts, moves and removals
+    @Test
+    void spansStayConsistentThroughRandomUpdates() {
+        RankedIndex index = new RankedIndex();
+        Map<Long, Long> scores = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) {
+                long id = 1 + random.nextInt(400);
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        long score = random.nextInt(50);
+                        index.put(id, score);
+                        scores.put(id, score);
+                    }
+                    case 1 -> {
+                        long delta = random.nextInt(11) - 5;
+                        assertEquals(scores.merge(id, delta, Long::sum), index.add(id, delta));
+                    }
+                    case 2 -> assertEquals(scores.remove(id) != null, index.remove(id));
+                    default -> assertEquals(scores.containsKey(id), index.contains(id));
+                }
+            }
+            assertMatches(scores, index);
+        }
+    }
+
+    private static void assertMatches(Map<Long, Long> scores, RankedIndex index) {
+        List<Map.Entry<Long, Long>> expected = new ArrayList<>(scores.entrySet());
+        expected.sort(ORDER);
+        assertEquals(expected.size(), index.size());
+
+        List<RankedIndex.Entry> all = new ArrayList<>();
+        for (int i = 0; i < expected.size(); i++) {
+            all.add(new RankedIndex.Entry(expected.get(i).getKey(), expected.get(i).getValue(), i + 1));
+        }
+        for (RankedIndex.Entry entry : all) {
+            assertEquals(entry, index.entryOf(entry.id()));
+        }
+        for (int offset = 0; offset < all.size(); offset += 7) {
+            assertEquals(all.subList(offset, Math.min(offset + 13, all.size())), index.range(offset, 13));
+        }
+    }
+}
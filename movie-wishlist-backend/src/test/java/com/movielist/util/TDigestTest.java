@@ -0,0 +1,98 @@
+package com.movielist.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TDigestTest {
+
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void emptyDigestHasNoQuantiles() {
+        TDigest digest = new TDigest(100);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        assertEquals(0.0, digest.rankError(0.5));
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        TDigest digest = new TDigest(100);
+        digest.add(42);
+        assertEquals(42.0, digest.quantile(0.01));
+        assertEquals(42.0, digest.quantile(0.99));
+    }
+
+    @Test
+    void extremesAreExact() {
+        TDigest digest = new TDigest(100);
+        Random random = new Random(3);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextGaussian();
+            digest.add(value);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        assertEquals(min, digest.quantile(0));
+        assertEquals(max, digest.quantile(1));
+        assertEquals(10_000, digest.count());
+    }
+
+    // The rank of each estimate among the real values must be within the digest's own
+    // reported bound of the requested rank, on uniform and on heavily skewed data
+    @Test
+    void rankErrorStaysWithinTheReportedBound() {
+        Random random = new Random(11);
+        int count = 200_000;
+        double[] uniform = new double[count];
+        double[] skewed = new double[count];
+        for (int i = 0; i < count; i++) {
+            uniform[i] = random.nextDouble() * 1000;
+            skewed[i] = -Math.log(1 - random.nextDouble()) * 90;
+        }
+        assertRankErrorWithinBound(uniform);
+        assertRankErrorWithinBound(skewed);
+    }
+
+    @Test
+    void sizeIsBoundedByCompressionNotCount() {
+        TDigest small = new TDigest(100);
+        TDigest large = new TDigest(100);
+        Random random = new Random(5);
+        for (int i = 0; i < 1_000_000; i++) {
+            double value = random.nextDouble();
+            if (i < 10_000) {
+                small.add(value);
+            }
+            large.add(value);
+        }
+        small.quantile(0.5);
+        large.quantile(0.5);
+        assertTrue(large.sizeInBytes() < 2 * small.sizeInBytes(),
+                "small=" + small.sizeInBytes() + " large=" + large.sizeInBytes());
+    }
+
+    private static void assertRankErrorWithinBound(double[] values) {
+        TDigest digest = new TDigest(100);
+        for (double value : values) {
+            digest.add(value);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double estimate = digest.quantile(q);
+            // Fraction of values below the estimate, the rank it really has
+            int below = Arrays.binarySearch(sorted, estimate);
+            double rank = (below >= 0 ? below : -below - 1) / (double) sorted.length;
+            double bound = digest.rankError(q) + 1.0 / sorted.length;
+            assertTrue(Math.abs(rank - q) <= bound,
+                    "q=" + q + " rank=" + rank + " bound=" + bound);
+        }
+    }
+}